@@ -0,0 +1,27 @@
+package src.benchmark.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.Runner;
+
+/**
+ * Runs the benchmarks with the gc profiler, so every result comes with
+ * its allocation rate (gc.alloc.rate.norm is bytes per operation) next
+ * to throughput and average time. Takes the usual JMH options, e.g. a
+ * regular expression selecting benchmarks or -p size=400.
+ */
+public class BenchmarkRunner
+{
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException
+    {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
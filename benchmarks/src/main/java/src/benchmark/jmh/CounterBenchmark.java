@@ -0,0 +1,87 @@
+package src.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.Simulator;
+import src.SequentialStepEngine;
+import src.StepEngine;
+import src.animal.ActorStore;
+import src.animal.CounterSystem;
+import src.animal.EcsStepEngine;
+
+/**
+ * The ageing, hunger and sickness updates one animal at a time, as
+ * Animal.act does them, against the bulk updates of the EcsStepEngine,
+ * scalar and vectorised.
+ *
+ * advance times the counter pass alone over the store of a populated
+ * field. The counters keep going past their limits during an iteration,
+ * which only makes the branches of the scalar pass easier to predict.
+ * simulateOneStep times whole steps with each engine, the sequential one
+ * being the per-object path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Thread)
+public class CounterBenchmark
+{
+    @Param({ "120", "400" })
+    private int size;
+
+    @Param({ "sequential", "scalar", "vector" })
+    private String engine;
+
+    private Simulator simulator;
+    private ActorStore store;
+    private CounterSystem counters;
+    private int[] deaths;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        if(engine.equals("vector") && CounterSystem.vectorised() == null) {
+            throw new IllegalStateException("The Vector API is not available");
+        }
+        counters = engine.equals("vector") ? CounterSystem.vectorised() : CounterSystem.scalar();
+        StepEngine stepEngine = engine.equals("sequential") ? new SequentialStepEngine()
+                                                            : new EcsStepEngine(counters);
+        simulator = Simulator.headless(size, size);
+        simulator.useRandomStreams(1111);
+        simulator.setStepEngine(stepEngine);
+        simulator.reset();
+        // The first step of an EcsStepEngine moves the animals into the store.
+        simulator.simulateOneStep();
+        store = simulator.getEcosystem().getActorStore();
+        deaths = new int[size * size];
+    }
+
+    @Benchmark
+    public boolean advance()
+    {
+        // With the sequential engine the store is empty, so this only times the call.
+        return counters.advance(store, deaths);
+    }
+
+    @Benchmark
+    public int simulateOneStep()
+    {
+        simulator.simulateOneStep();
+        return simulator.getAnimalCount();
+    }
+}
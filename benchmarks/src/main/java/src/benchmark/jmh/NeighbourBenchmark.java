@@ -0,0 +1,121 @@
+package src.benchmark.jmh;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.Field;
+import src.Location;
+import src.Simulator;
+
+/**
+ * The neighbourhood queries of Field, both the list based methods and
+ * their allocation-free cell versions, and isWaterClose. Every call
+ * looks at the next cell of a populated field, so the results cover a
+ * mix of water, ground, occupied and free cells.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NeighbourBenchmark
+{
+    @Param({ "120", "1000" })
+    private int size;
+
+    private Field field;
+    private int cells;
+    private int cell;
+    private final int[] buffer = new int[8];
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        Simulator simulator = Simulator.headless(size, size);
+        simulator.useRandomStreams(1111);
+        simulator.reset();
+        simulator.simulate(10);
+        field = simulator.getField();
+        cells = size * size;
+    }
+
+    /**
+     * @return The location of the next cell to query.
+     */
+    private Location nextLocation()
+    {
+        return field.locationOf(nextCell());
+    }
+
+    /**
+     * @return The index of the next cell to query.
+     */
+    private int nextCell()
+    {
+        cell = (cell + 7919) % cells;
+        return cell;
+    }
+
+    @Benchmark
+    public List<Location> adjacentLocations()
+    {
+        return field.adjacentLocations(nextLocation());
+    }
+
+    @Benchmark
+    public List<Location> getFreeAdjacentLocations()
+    {
+        return field.getFreeAdjacentLocations(nextLocation());
+    }
+
+    @Benchmark
+    public List<Location> getFreeGroundAdjacentLocations()
+    {
+        return field.getFreeGroundAdjacentLocations(nextLocation());
+    }
+
+    @Benchmark
+    public List<Location> getFreeWaterAdjacentLocations()
+    {
+        return field.getFreeWaterAdjacentLocations(nextLocation());
+    }
+
+    @Benchmark
+    public List<Location> getFreeFromPlantGroundAdjacentLocations()
+    {
+        return field.getFreeFromPlantGroundAdjacentLocations(nextLocation());
+    }
+
+    @Benchmark
+    public int adjacentCells()
+    {
+        return field.adjacentCells(nextCell(), buffer);
+    }
+
+    @Benchmark
+    public int freeGroundAdjacentCells()
+    {
+        return field.freeGroundAdjacentCells(nextCell(), buffer);
+    }
+
+    @Benchmark
+    public boolean isWaterClose()
+    {
+        Location location = nextLocation();
+        return field.isWaterClose(location.getRow(), location.getCol());
+    }
+}
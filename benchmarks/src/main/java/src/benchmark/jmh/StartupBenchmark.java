@@ -0,0 +1,50 @@
+package src.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.Simulator;
+
+/**
+ * The cost of Simulator.reset, which lays out the terrain and
+ * populates the field.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StartupBenchmark
+{
+    @Param({ "120", "400", "1000" })
+    private int size;
+
+    private Simulator simulator;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        simulator = Simulator.headless(size, size);
+        simulator.useRandomStreams(1111);
+    }
+
+    @Benchmark
+    public int reset()
+    {
+        simulator.reset();
+        return simulator.getAnimalCount();
+    }
+}
@@ -0,0 +1,58 @@
+package src.benchmark.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.Simulator;
+
+/**
+ * One step of a headless simulation at several field sizes and
+ * population densities. The world is rebuilt for every iteration so
+ * that a measurement does not drift into a field where most of the
+ * animals have died out.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StepBenchmark
+{
+    @Param({ "120", "400", "1000" })
+    private int size;
+
+    // Scales the creation probabilities, see Simulator.setPopulationDensity.
+    @Param({ "0.5", "1.0", "2.0" })
+    private double density;
+
+    private Simulator simulator;
+
+    @Setup(Level.Iteration)
+    public void setUp()
+    {
+        simulator = Simulator.headless(size, size);
+        simulator.setPopulationDensity(density);
+        simulator.useRandomStreams(1111);
+        simulator.reset();
+    }
+
+    @Benchmark
+    public int simulateOneStep()
+    {
+        simulator.simulateOneStep();
+        return simulator.getAnimalCount();
+    }
+}
@@ -0,0 +1,79 @@
+package src.benchmark.jmh;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.Field;
+import src.LegacyTerrainGenerator;
+import src.NoiseTerrainGenerator;
+import src.TerrainGenerator;
+
+/**
+ * Laying out the terrain of a field with each generator, on a pool of
+ * the given number of threads. The NoiseTerrainGenerator computes its
+ * rows with a parallel stream, which runs on the pool it is called from;
+ * the LegacyTerrainGenerator is sequential, so its threads make no
+ * difference. Compare threads=1 with more to see what the parallel rows
+ * gain; that needs a machine with as many cores.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TerrainBenchmark
+{
+    @Param({ "legacy", "noise" })
+    private String generator;
+
+    @Param({ "1000", "2000" })
+    private int size;
+
+    @Param({ "1", "2", "4" })
+    private int threads;
+
+    private TerrainGenerator terrainGenerator;
+    private Field field;
+    private ForkJoinPool pool;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        terrainGenerator = generator.equals("noise") ? new NoiseTerrainGenerator() : new LegacyTerrainGenerator();
+        field = new Field(size, size);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Field generate() throws Exception
+    {
+        Random random = new Random(seed++);
+        return pool.submit(() -> {
+            terrainGenerator.generate(field, random);
+            return field;
+        }).get();
+    }
+}
@@ -0,0 +1,88 @@
+package src.benchmark.jmh;
+
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.Simulator;
+import src.SimulatorView;
+
+/**
+ * Publishing a frame of a populated field with SimulatorView.showStatus
+ * and drawing it with showWaitingFrame on the event dispatch thread.
+ * The simulation takes a step before every call, outside the timing, so
+ * that every frame holds the cells changed by one step, as when the view
+ * keeps up with the simulation. The world is rebuilt for every iteration,
+ * whose first frame is therefore a full one.
+ *
+ * This opens a window, so it needs a display (on a server, run it under
+ * e.g. xvfb-run); on a headless machine the benchmark fails in its setup.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ViewBenchmark
+{
+    @Param({ "120", "400" })
+    private int size;
+
+    private Simulator simulator;
+    private SimulatorView view;
+
+    @Setup(Level.Trial)
+    public void openView() throws Exception
+    {
+        if(GraphicsEnvironment.isHeadless()) {
+            throw new IllegalStateException("ViewBenchmark needs a display");
+        }
+        SwingUtilities.invokeAndWait(() -> view = new SimulatorView(size, size));
+    }
+
+    @Setup(Level.Iteration)
+    public void buildWorld()
+    {
+        simulator = Simulator.headless(size, size);
+        simulator.useRandomStreams(1111);
+        simulator.reset();
+        simulator.simulate(10);
+    }
+
+    @Setup(Level.Invocation)
+    public void step()
+    {
+        simulator.simulateOneStep();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception
+    {
+        SwingUtilities.invokeAndWait(() -> view.dispose());
+    }
+
+    @Benchmark
+    public void publishAndShow() throws Exception
+    {
+        view.showStatus(simulator.getStep(), simulator.getField());
+        // The frame timer may take the frame first; it draws it on the
+        // same thread, so the wait covers the drawing either way.
+        SwingUtilities.invokeAndWait(view::showWaitingFrame);
+    }
+}
@@ -0,0 +1,103 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import src.animal.CauseOfDeath;
+import src.animal.FieldObject;
+
+/**
+ * The handles of an ActorList must find their actor wherever removeDead
+ * has moved it, and find nothing once the actor has left the list, even
+ * after its slot has been given to a new actor.
+ *
+ * The animals of a fresh world are split into a first lot, added to a
+ * list, and newcomers. Every round some actors of the list die, the dead
+ * are dropped, and newcomers are added into the freed slots. Every handle
+ * taken so far is then looked up: the handle of an actor still in the
+ * list must find it, any other handle nothing. The list is cleared at
+ * the end, after which no handle finds anything.
+ */
+class ActorListTest
+{
+    private static final int ROUNDS = 50;
+
+    @Test
+    void handlesFindTheirActorUntilItLeaves()
+    {
+        Simulator world = Simulator.headless(100, 100);
+        Field field = world.getField();
+        List<FieldObject> newcomers = new ArrayList<>();
+        for(int index = 0; index < field.getDepth() * field.getWidth(); index++) {
+            if(field.getObjectAt(index) instanceof FieldObject) {
+                newcomers.add((FieldObject) field.getObjectAt(index));
+            }
+        }
+
+        Random random = new Random(5);
+        ActorList actors = new ActorList();
+        // Every handle taken, and the actor it was taken for.
+        List<Long> handles = new ArrayList<>();
+        List<FieldObject> owners = new ArrayList<>();
+        int stale = 0;
+        int reused = 0;
+        add(actors, newcomers, newcomers.size() / 2, handles, owners);
+        for(int round = 0; round < ROUNDS && !newcomers.isEmpty(); round++) {
+            for(FieldObject actor : actors) {
+                if(random.nextInt(10) == 0) {
+                    actor.setDead(CauseOfDeath.AGE);
+                }
+            }
+            actors.removeDead();
+            int slots = handles.size();
+            add(actors, newcomers, Math.min(newcomers.size(), 1 + random.nextInt(actors.size() / 10 + 1)),
+                handles, owners);
+            for(int i = slots; i < handles.size(); i++) {
+                for(int j = 0; j < slots; j++) {
+                    // The low half of a handle is its slot.
+                    if(handles.get(i).intValue() == handles.get(j).intValue()) {
+                        reused++;
+                        break;
+                    }
+                }
+            }
+            for(int i = 0; i < handles.size(); i++) {
+                FieldObject owner = owners.get(i);
+                FieldObject expected = owner.isAlive() ? owner : null;
+                if(expected == null) {
+                    stale++;
+                }
+                assertSame(expected, actors.find(handles.get(i)), "handle " + i + " in round " + round);
+            }
+        }
+        // Otherwise the lookups above proved little.
+        assertTrue(reused > 0, "no slot was reused");
+        assertTrue(stale > 0, "no stale handle was looked up");
+
+        actors.clear();
+        for(long handle : handles) {
+            assertNull(actors.find(handle));
+        }
+    }
+
+    /**
+     * Move some newcomers into the list and note their handles.
+     */
+    private static void add(ActorList actors, List<FieldObject> newcomers, int count,
+                            List<Long> handles, List<FieldObject> owners)
+    {
+        for(int i = 0; i < count; i++) {
+            FieldObject actor = newcomers.remove(newcomers.size() - 1);
+            actors.add(actor);
+            handles.add(actors.handle(actors.size() - 1));
+            owners.add(actor);
+        }
+    }
+}
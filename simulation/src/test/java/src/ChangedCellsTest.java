@@ -0,0 +1,75 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Field.takeChangedCells must tell every cell a view has to redraw.
+ *
+ * A shadow copy of what a view shows in each cell (the animal, else the
+ * plant, else the floor type) is kept up to date from the changed cells
+ * alone, and compared with the field after every step. The world is
+ * reset halfway, which must ask for a full redraw. This is done with the
+ * sequential engine and with the tiled engine, whose threads mark cells
+ * at the same time.
+ */
+class ChangedCellsTest
+{
+    private static final int STEPS = 3000;
+    private static final int THREADS = 4;
+    // What the shadow copy holds for a cell with a plant.
+    private static final Object PLANT = new Object();
+
+    @ParameterizedTest(name = "tiled {0}")
+    @ValueSource(booleans = { false, true })
+    void shadowCopyMatchesTheField(boolean tiled)
+    {
+        Simulator world = Simulator.headless(90, 110);
+        world.useRandomStreams(3);
+        world.setStepEngine(tiled ? new TiledStepEngine(THREADS) : new SequentialStepEngine());
+        world.reset();
+        Field field = world.getField();
+        int cells = field.getDepth() * field.getWidth();
+        Object[] shadow = new Object[cells];
+        int fullRedraws = 0;
+        int wrong = 0;
+        for(int step = 0; step < STEPS; step++) {
+            if(step == STEPS / 2) {
+                world.reset();
+            }
+            boolean partial = field.takeChangedCells(index -> shadow[index] = shown(field, index));
+            if(!partial) {
+                fullRedraws++;
+                for(int index = 0; index < cells; index++) {
+                    shadow[index] = shown(field, index);
+                }
+            }
+            for(int index = 0; index < cells; index++) {
+                if(shadow[index] != shown(field, index)) {
+                    wrong++;
+                }
+            }
+            world.simulateOneStep();
+        }
+        // The first frame and the one after the reset.
+        assertEquals(2, fullRedraws, "full redraws");
+        assertEquals(0, wrong, "cells wrong");
+    }
+
+    /**
+     * @return What a view shows in a cell.
+     */
+    private static Object shown(Field field, int index)
+    {
+        Object object = field.getObjectAt(index);
+        if(object != null) {
+            return object;
+        }
+        if(field.hasPlant(index)) {
+            return PLANT;
+        }
+        return field.getFloorTypeAt(index);
+    }
+}
@@ -0,0 +1,95 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import src.animal.Animal;
+import src.fieldType.Water;
+
+/**
+ * A simulation restored from a checkpoint must go on exactly as the one
+ * the checkpoint was taken from (see Checkpoint).
+ *
+ * A world with a tuned parameter is simulated for some steps, saved,
+ * and simulated as many steps again. A second world, left with the
+ * default parameters, is restored from the file and simulated the same
+ * steps. Both must end with the same field, cell by cell and
+ * animal by animal, and draw the same next number from the shared
+ * generator. With per-actor random streams, restoring must leave the
+ * shared generator as it was instead, since other simulations may be
+ * drawing from it.
+ */
+class CheckpointTest
+{
+    private static final int DEPTH = 80;
+    private static final int WIDTH = 120;
+    // The steps simulated before and after the checkpoint.
+    private static final int STEPS = 700;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest(name = "streams {0}, compressed {1}")
+    @CsvSource({ "false, false", "false, true", "true, false", "true, true" })
+    void restoredRunGoesOnAsTheOriginal(boolean streams, boolean compress) throws IOException
+    {
+        Path file = directory.resolve("checkpoint" + (compress ? ".gz" : ""));
+        Simulator original = Simulator.headless(DEPTH, WIDTH);
+        original.setParameters(new SimulationParameters().set(Parameter.RAINING_PROBABILITY, 0.5));
+        if(streams) {
+            original.useRandomStreams(42);
+        }
+        original.reset();
+        original.simulate(STEPS);
+        original.saveCheckpoint(file, compress);
+        original.simulate(STEPS);
+        if(streams) {
+            // The shared generator as the restored run must leave it.
+            Randomizer.reset();
+        }
+        String expected = fingerprint(original) + " " + Randomizer.getRandom().nextLong();
+
+        Simulator restored = Simulator.headless(DEPTH, WIDTH);
+        if(streams) {
+            Randomizer.reset();
+        }
+        restored.restoreCheckpoint(file);
+        restored.simulate(STEPS);
+        String actual = fingerprint(restored) + " " + Randomizer.getRandom().nextLong();
+
+        assertEquals(2 * STEPS, restored.getStep());
+        assertEquals(expected, actual);
+    }
+
+    /**
+     * @return A hash of the step, the weather and every cell: its floor
+     *         type, plant and animal with its whole state. It only depends
+     *         on the simulation, not on the JVM, so runs can be compared.
+     */
+    private static String fingerprint(Simulator simulator)
+    {
+        Field field = simulator.getField();
+        long hash = simulator.getStep();
+        for(int index = 0; index < field.getDepth() * field.getWidth(); index++) {
+            hash = hash * 31 + (field.getFloorTypeAt(index) instanceof Water ? 1 : 2);
+            hash = hash * 31 + (field.hasPlant(index) ? 1 : 2);
+            Object object = field.getObjectAt(index);
+            if(object instanceof Animal) {
+                Animal animal = (Animal) object;
+                hash = hash * 31 + animal.getSpecies().hashCode();
+                hash = hash * 31 + animal.getAge();
+                hash = hash * 31 + animal.getFoodLevel();
+                hash = hash * 31 + animal.getStepsBeingSick();
+                hash = hash * 31 + (animal.isSick() ? 1 : 2);
+                hash = hash * 31 + (animal.isMale() ? 1 : 2);
+            }
+        }
+        return Long.toHexString(hash) + (field.isRaining() ? " raining" : " dry");
+    }
+}
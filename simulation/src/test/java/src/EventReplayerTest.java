@@ -0,0 +1,86 @@
+package src;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import src.animal.Animal;
+import src.fieldType.Water;
+
+/**
+ * An EventReplayer must rebuild the field of a recorded run as it was.
+ *
+ * A run is recorded with an event log and a checkpoint every so many
+ * steps, and the live field is noted at a few steps that fall between
+ * checkpoints and on one. The replayed field at those steps must have
+ * the same floor types, plants, weather, and species and sickness of
+ * the animal in every cell.
+ */
+class EventReplayerTest
+{
+    private static final int SIZE = 120;
+    private static final int STEPS = 2000;
+    private static final int CHECKPOINT_INTERVAL = 500;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayedFieldsMatchTheRecordedRun() throws IOException, InterruptedException
+    {
+        int[] at = { STEPS * 5 / 8, STEPS / CHECKPOINT_INTERVAL / 2 * CHECKPOINT_INTERVAL, STEPS - 1 };
+        Path log = directory.resolve("events.log");
+        Simulator world = Simulator.headless(SIZE, SIZE);
+        world.useRandomStreams(9);
+        world.reset();
+        String[] expected = new String[at.length];
+        world.addObserver((step, field) -> {
+            for(int i = 0; i < at.length; i++) {
+                if(step == at[i]) {
+                    expected[i] = fingerprint(field);
+                }
+            }
+        });
+        CheckpointWriter checkpoints = world.checkpointEvery(CHECKPOINT_INTERVAL, directory, true);
+        EventLog events = world.recordEvents(log);
+        world.simulate(STEPS);
+        checkpoints.close();
+        events.close();
+
+        EventReplayer replayer = new EventReplayer(log, directory);
+        for(int i = 0; i < at.length; i++) {
+            assertEquals(expected[i], fingerprint(replayer.stateAt(at[i])), "step " + at[i]);
+        }
+    }
+
+    /**
+     * @return A hash of what the event log knows of every cell, live or
+     *         replayed, followed by the weather and the number of plants.
+     */
+    private static String fingerprint(Field field)
+    {
+        long hash = 0;
+        for(int index = 0; index < field.getDepth() * field.getWidth(); index++) {
+            Object object = field.getObjectAt(index);
+            String species = "-";
+            boolean sick = false;
+            if(object instanceof Animal) {
+                species = ((Animal) object).getSpecies();
+                sick = ((Animal) object).isSick();
+            }
+            else if(object instanceof EventReplayer.ReplayedAnimal) {
+                species = ((EventReplayer.ReplayedAnimal) object).getSpecies();
+                sick = ((EventReplayer.ReplayedAnimal) object).isSick();
+            }
+            hash = hash * 31 + species.hashCode();
+            hash = hash * 31 + (sick ? 1 : 2);
+            hash = hash * 31 + (field.hasPlant(index) ? 1 : 2);
+            hash = hash * 31 + (field.getFloorTypeAt(index) instanceof Water ? 1 : 2);
+        }
+        return Long.toHexString(hash) + (field.isRaining() ? " raining" : " dry") + " " + field.getPlantCount();
+    }
+}
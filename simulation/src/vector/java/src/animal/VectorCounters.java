@@ -0,0 +1,64 @@
+package src.animal;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The counter system that updates as many entities at a time as the
+ * CPU's widest vectors hold ints, with the Vector API. Each lane is an
+ * entity: the counters are added to under the mask of the living lanes,
+ * compared with their limits, and the causes of death blended in, without
+ * a branch. The entities left over at the end are updated one at a time.
+ *
+ * Needs --add-modules jdk.incubator.vector, both to compile and to run,
+ * so it is kept out of src/, which compiles without it, and only the
+ * simulation module's build compiles it. CounterSystem.vectorised() only
+ * loads this class when the module is there, and by name.
+ */
+class VectorCounters implements CounterSystem
+{
+    private static final VectorSpecies<Integer> LANES = IntVector.SPECIES_PREFERRED;
+    private static final int AGE = CauseOfDeath.AGE.ordinal() + 1;
+    private static final int HUNGER = CauseOfDeath.HUNGER.ordinal() + 1;
+    private static final int SICKNESS = CauseOfDeath.SICKNESS.ordinal() + 1;
+    private static final int TRACKED_SICK = ActorStore.SICK | ActorStore.TRACKS_SICKNESS;
+
+    public boolean advance(ActorStore store, int[] deaths)
+    {
+        int limit = store.limit();
+        int[] age = store.age;
+        int[] maxAge = store.maxAge;
+        int[] food = store.food;
+        int[] sickSteps = store.sickSteps;
+        int[] flags = store.flags;
+        IntVector none = IntVector.zero(LANES);
+        VectorMask<Integer> dying = LANES.maskAll(false);
+        int bound = LANES.loopBound(limit);
+        int e = 0;
+        for(; e < bound; e += LANES.length()) {
+            IntVector flag = IntVector.fromArray(LANES, flags, e);
+            VectorMask<Integer> alive = flag.and(ActorStore.ALIVE).compare(VectorOperators.NE, 0);
+            flag.and(~ActorStore.NEWBORN).intoArray(flags, e);
+
+            VectorMask<Integer> tracked = flag.and(TRACKED_SICK).compare(VectorOperators.EQ, TRACKED_SICK);
+            IntVector sick = IntVector.fromArray(LANES, sickSteps, e).add(1, tracked);
+            sick.intoArray(sickSteps, e);
+            IntVector hungry = IntVector.fromArray(LANES, food, e).sub(1, alive);
+            hungry.intoArray(food, e);
+            IntVector old = IntVector.fromArray(LANES, age, e).add(1, alive);
+            old.intoArray(age, e);
+
+            // The later causes win, as in ScalarCounters.
+            IntVector cause = none
+                .blend(SICKNESS, sick.compare(VectorOperators.GT, Animal.MAX_STEPS_SICK).and(tracked))
+                .blend(HUNGER, hungry.compare(VectorOperators.LE, 0).and(alive))
+                .blend(AGE, old.compare(VectorOperators.GT, IntVector.fromArray(LANES, maxAge, e)).and(alive));
+            cause.intoArray(deaths, e);
+            dying = dying.or(cause.compare(VectorOperators.NE, 0));
+        }
+        boolean tail = ScalarCounters.advance(store, deaths, e);
+        return dying.anyTrue() || tail;
+    }
+}
@@ -0,0 +1,170 @@
+package src;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import src.animal.FieldObject;
+
+/**
+ * The actors of a simulation, in acting order. Dead actors are not
+ * removed one at a time, which costs a shift of the rest of the list
+ * each, but marked by dying and dropped together by removeDead, in one
+ * pass, at the end of a step. New actors are appended.
+ *
+ * The order is deterministic: actors are appended in the order they are
+ * added, and removeDead keeps the survivors in their order, so a step's
+ * newborns act after everyone else in the next step, in the order they
+ * were born.
+ *
+ * Each actor also gets a handle while it is in the list: a number that
+ * finds it again wherever removeDead has moved it. A handle carries the
+ * generation of its slot, which goes up whenever the actor leaves the
+ * list, so a handle kept after that no longer finds anything, even once
+ * the slot has been given to another actor.
+ *
+ * Only appending, clearing and removeDead change the list; set, remove
+ * and the like are not supported.
+ */
+public final class ActorList extends AbstractList<FieldObject> implements RandomAccess
+{
+    private static final int INITIAL_CAPACITY = 256;
+
+    private FieldObject[] actors = new FieldObject[INITIAL_CAPACITY];
+    private int size;
+    // The handle slot of the actor at each position.
+    private int[] slotAt = new int[INITIAL_CAPACITY];
+    // The position of the actor of each slot, and the generation of each slot.
+    private int[] positionOf = new int[INITIAL_CAPACITY];
+    private int[] generations = new int[INITIAL_CAPACITY];
+    // Every slot below this one has been used.
+    private int slotsUsed;
+    // The slots free for reuse, the last freed on top.
+    private int[] freeSlots = new int[INITIAL_CAPACITY];
+    private int freeCount;
+
+    public FieldObject get(int index)
+    {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return actors[index];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Append an actor.
+     * @param actor The actor.
+     * @return true.
+     */
+    public boolean add(FieldObject actor)
+    {
+        if(size == actors.length) {
+            actors = Arrays.copyOf(actors, size * 2);
+            slotAt = Arrays.copyOf(slotAt, size * 2);
+        }
+        int slot;
+        if(freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        }
+        else {
+            if(slotsUsed == positionOf.length) {
+                positionOf = Arrays.copyOf(positionOf, slotsUsed * 2);
+                generations = Arrays.copyOf(generations, slotsUsed * 2);
+            }
+            slot = slotsUsed++;
+        }
+        actors[size] = actor;
+        slotAt[size] = slot;
+        positionOf[slot] = size;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Remove every actor. Their handles find nothing from now on.
+     */
+    public void clear()
+    {
+        for(int i = 0; i < size; i++) {
+            release(slotAt[i]);
+        }
+        Arrays.fill(actors, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Remove the actors that are no longer alive, keeping the order of
+     * the others, in one pass. Their handles find nothing from now on.
+     * @return The number of actors removed.
+     */
+    public int removeDead()
+    {
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            FieldObject actor = actors[i];
+            int slot = slotAt[i];
+            if(actor.isAlive()) {
+                actors[kept] = actor;
+                slotAt[kept] = slot;
+                positionOf[slot] = kept;
+                kept++;
+            }
+            else {
+                release(slot);
+            }
+        }
+        int removed = size - kept;
+        if(removed > 0) {
+            Arrays.fill(actors, kept, size, null);
+            size = kept;
+            modCount++;
+        }
+        return removed;
+    }
+
+    /**
+     * @param index The position of an actor.
+     * @return The handle of the actor, good until it leaves the list.
+     */
+    public long handle(int index)
+    {
+        if(index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        int slot = slotAt[index];
+        return ((long) generations[slot] << 32) | slot;
+    }
+
+    /**
+     * @param handle A handle given by this list.
+     * @return The actor of the handle, or null if it has left the list
+     *         since.
+     */
+    public FieldObject find(long handle)
+    {
+        int slot = (int) handle;
+        if(slot < 0 || slot >= slotsUsed || generations[slot] != (int) (handle >>> 32)) {
+            return null;
+        }
+        return actors[positionOf[slot]];
+    }
+
+    /**
+     * Make a slot stale and free for reuse.
+     */
+    private void release(int slot)
+    {
+        generations[slot]++;
+        if(freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+}
@@ -0,0 +1,84 @@
+package src;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Records which cells of a field have changed since a view last drew
+ * them: one bit per cell, set when an animal, plant or floor type of the
+ * cell changes and cleared when the view takes the changes. When too much
+ * changes at once (the field is cleared, say) the whole field is marked
+ * instead and the view redraws everything.
+ *
+ * Cells are marked atomically, as animals on several threads may change
+ * cells that share a word (see TiledStepEngine). The changes are taken
+ * between steps, while nothing marks.
+ */
+class ChangedCells
+{
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] words;
+    // Whether every cell counts as changed.
+    private volatile boolean all = true;
+
+    /**
+     * Create a record for the given number of cells, with every cell
+     * changed.
+     */
+    ChangedCells(int cells)
+    {
+        words = new long[(cells + 63) / 64];
+    }
+
+    /**
+     * Mark a cell as changed.
+     * @param index The index of the cell.
+     */
+    void mark(int index)
+    {
+        long mask = 1L << index;
+        int word = index >>> 6;
+        if((words[word] & mask) == 0) {
+            WORDS.getAndBitwiseOr(words, word, mask);
+        }
+    }
+
+    /**
+     * Mark every cell as changed.
+     */
+    void markAll()
+    {
+        all = true;
+    }
+
+    /**
+     * Hand every changed cell to the action, lowest index first, and
+     * forget them.
+     * @param action What to do with each changed cell.
+     * @return false if every cell changed, in which case the action is
+     *         not called and the caller should redraw the whole field.
+     */
+    boolean take(IntConsumer action)
+    {
+        if(all) {
+            all = false;
+            Arrays.fill(words, 0);
+            return false;
+        }
+        for(int word = 0; word < words.length; word++) {
+            long bits = words[word];
+            if(bits == 0) {
+                continue;
+            }
+            words[word] = 0;
+            while(bits != 0) {
+                action.accept(word * 64 + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+        return true;
+    }
+}
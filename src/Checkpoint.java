@@ -0,0 +1,555 @@
+package src;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import src.animal.Animal;
+import src.animal.Ecosystem;
+import src.animal.FieldObject;
+import src.animal.Species;
+import src.fieldType.Ground;
+import src.fieldType.Water;
+
+/**
+ * A snapshot of the whole state of a simulation between two steps: the
+ * terrain and plant layers, the weather, the step counter, the tuning
+ * parameters, the state of the random generators and every living
+ * animal in the order in which they act. A simulation restored from a checkpoint continues exactly
+ * as the original one would have.
+ *
+ * A checkpoint is taken in memory (see Simulator.captureCheckpoint), so
+ * it can be written on another thread while the simulation goes on.
+ * Files are written through NIO channels, optionally GZIP compressed;
+ * reading detects the compression by itself.
+ *
+ * The file holds, in this order: a header (magic, version, depth, width,
+ * step), the weather, the tuning parameters by key, the random state,
+ * the terrain and plants as one bit per cell, a table of species names,
+ * and one fixed-size record per animal (species, cell, age, sex and
+ * sickness, steps sick, food level).
+ */
+public final class Checkpoint
+{
+    // "SIMC", the first bytes of every checkpoint file.
+    private static final int MAGIC = 0x53494d43;
+    private static final int VERSION = 1;
+    // Size of the header after the magic and version: depth, width, step,
+    // whether it rains, days until it stops and parameter count.
+    private static final int HEADER_SIZE = 5 * Integer.BYTES + 1;
+    // Size of the buffer used when writing and reading files.
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Flags of an animal record.
+    private static final int MALE = 1;
+    private static final int SICK = 2;
+
+    /**
+     * Creates an animal of one species when a checkpoint is restored,
+     * with Species.create so that it joins the ecosystem. Its state is
+     * overwritten afterwards, so it does not matter how the animal
+     * starts out.
+     */
+    public interface SpeciesFactory
+    {
+        Animal create(Ecosystem ecosystem, Location location);
+    }
+
+    // The factory of each species, by name.
+    private static final Map<String, SpeciesFactory> factories = new ConcurrentHashMap<>();
+
+    static {
+        for(int id : Species.ids()) {
+            registerSpecies(Species.getName(id), (ecosystem, location) -> Species.create(id, false, ecosystem, location));
+        }
+    }
+
+    private final int depth;
+    private final int width;
+    private final int step;
+    private final boolean isRaining;
+    private final int daysUntilStopsRaining;
+    // The values of the tuning parameters, by key.
+    private final String[] parameterKeys;
+    private final double[] parameterValues;
+    // Whether the simulation uses per-actor random streams, and their seed.
+    private final boolean useStreams;
+    private final long streamSeed;
+    // The state of the shared generator, restored only if the
+    // simulation does not use per-actor random streams.
+    private final long sharedRandom;
+    // One bit per cell.
+    private final BitSet water;
+    private final BitSet plants;
+    // The names of the species, indexed by the species of each record.
+    private final String[] species;
+    // The animal records, in acting order.
+    private final short[] speciesOf;
+    private final int[] cells;
+    private final int[] ages;
+    private final byte[] flags;
+    private final int[] stepsSick;
+    private final int[] foodLevels;
+
+    private Checkpoint(int depth, int width, int step, boolean isRaining, int daysUntilStopsRaining,
+                       String[] parameterKeys, double[] parameterValues,
+                       boolean useStreams, long streamSeed, long sharedRandom,
+                       BitSet water, BitSet plants, String[] species, int animals)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.step = step;
+        this.isRaining = isRaining;
+        this.daysUntilStopsRaining = daysUntilStopsRaining;
+        this.parameterKeys = parameterKeys;
+        this.parameterValues = parameterValues;
+        this.useStreams = useStreams;
+        this.streamSeed = streamSeed;
+        this.sharedRandom = sharedRandom;
+        this.water = water;
+        this.plants = plants;
+        this.species = species;
+        speciesOf = new short[animals];
+        cells = new int[animals];
+        ages = new int[animals];
+        flags = new byte[animals];
+        stepsSick = new int[animals];
+        foodLevels = new int[animals];
+    }
+
+    /**
+     * Register how to create the animals of a species on restore. The
+     * species defined in Species are registered already.
+     * @param species The name of the species, e.g. Lion.
+     * @param factory Creates an animal of the species.
+     */
+    public static void registerSpecies(String species, SpeciesFactory factory)
+    {
+        factories.put(species, factory);
+    }
+
+    /**
+     * Take a snapshot of a simulation between two steps.
+     * @param step The step the simulation has reached.
+     * @param field The field of the simulation.
+     * @param actors The actors of the simulation, in acting order.
+     * @return The checkpoint.
+     */
+    static Checkpoint capture(int step, Field field, List<FieldObject> actors)
+    {
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        BitSet water = new BitSet(depth * width);
+        BitSet plants = new BitSet(depth * width);
+        for(int index = 0; index < depth * width; index++) {
+            if(field.getFloorTypeAt(index) instanceof Water) {
+                water.set(index);
+            }
+            if(field.hasPlant(index)) {
+                plants.set(index);
+            }
+        }
+
+        // The step engines drop the dead at the end of a step, but a
+        // list filled some other way may still hold some; leave them out.
+        List<Animal> living = new ArrayList<>();
+        // The index of each species in the table, in order of first appearance.
+        Map<String, Integer> species = new LinkedHashMap<>();
+        for(FieldObject actor : actors) {
+            if(!actor.isAlive()) {
+                continue;
+            }
+            if(!(actor instanceof Animal)) {
+                throw new IllegalStateException("Cannot checkpoint " + actor.getClass().getName());
+            }
+            Animal animal = (Animal) actor;
+            living.add(animal);
+            species.putIfAbsent(animal.getSpecies(), species.size());
+        }
+
+        Parameter[] parameters = Parameter.values();
+        String[] parameterKeys = new String[parameters.length];
+        double[] parameterValues = new double[parameters.length];
+        for(int i = 0; i < parameters.length; i++) {
+            parameterKeys[i] = parameters[i].getKey();
+            parameterValues[i] = field.getParameters().get(parameters[i]);
+        }
+
+        RandomStreams streams = field.getRandomStreams();
+        Checkpoint checkpoint = new Checkpoint(depth, width, step, field.isRaining(), field.getDaysUntilStopsRaining(),
+                                               parameterKeys, parameterValues,
+                                               streams != null, streams == null ? 0 : streams.getSeed(),
+                                               Randomizer.getSharedState(),
+                                               water, plants, species.keySet().toArray(new String[0]), living.size());
+        for(int i = 0; i < living.size(); i++) {
+            Animal animal = living.get(i);
+            checkpoint.speciesOf[i] = species.get(animal.getSpecies()).shortValue();
+            checkpoint.cells[i] = field.indexOf(animal.getLocation());
+            checkpoint.ages[i] = animal.getAge();
+            checkpoint.flags[i] = (byte) ((animal.isMale() ? MALE : 0) | (animal.isSick() ? SICK : 0));
+            checkpoint.stepsSick[i] = animal.getStepsBeingSick();
+            checkpoint.foodLevels[i] = animal.getFoodLevel();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Put the state of the checkpoint into an empty ecosystem and actor
+     * list. The random generators are restored last, after the animals
+     * have been created.
+     * @param ecosystem A cleared ecosystem, whose field is cleared and
+     *                  of the same size as the checkpoint.
+     * @param actors An empty list to receive the animals.
+     */
+    void restore(Ecosystem ecosystem, List<FieldObject> actors)
+    {
+        Field field = ecosystem.getField();
+        restoreLayers(field);
+
+        SpeciesFactory[] speciesFactories = new SpeciesFactory[species.length];
+        for(int i = 0; i < species.length; i++) {
+            speciesFactories[i] = factories.get(species[i]);
+            if(speciesFactories[i] == null) {
+                throw new IllegalStateException("No factory registered for " + species[i]);
+            }
+        }
+        RandomStreams streams = useStreams ? new RandomStreams(streamSeed) : null;
+        for(int i = 0; i < cells.length; i++) {
+            if(streams != null) {
+                // The animal's state is overwritten below, but creating it
+                // draws numbers, which must not come from the shared generator.
+                streams.enter(step, cells[i]);
+            }
+            Animal animal = speciesFactories[speciesOf[i]].create(ecosystem, field.locationOf(cells[i]));
+            animal.restoreState(ages[i], (flags[i] & MALE) != 0, (flags[i] & SICK) != 0,
+                                stepsSick[i], foodLevels[i]);
+            actors.add(animal);
+        }
+        RandomStreams.leave();
+
+        field.setParameters(getParameters());
+        field.setRandomStreams(streams);
+        if(streams == null) {
+            // A simulation with streams leaves the shared generator alone,
+            // as other simulations in the JVM may be drawing from it.
+            Randomizer.restoreSharedState(sharedRandom);
+        }
+    }
+
+    /**
+     * Put the floor types, the plants and the weather of the checkpoint
+     * into a cleared field, leaving out the animals.
+     * @param field A cleared field of the same size as the checkpoint.
+     */
+    void restoreLayers(Field field)
+    {
+        if(field.getDepth() != depth || field.getWidth() != width) {
+            throw new IllegalArgumentException("The checkpoint is for a " + depth + "x" + width + " field");
+        }
+        Water waterType = new Water();
+        Ground groundType = new Ground();
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                field.setFloorType(water.get(row * width + col) ? waterType : groundType, row, col);
+            }
+        }
+        for(int index = plants.nextSetBit(0); index >= 0; index = plants.nextSetBit(index + 1)) {
+            field.placePlant(field.locationOf(index));
+        }
+        field.setWeather(isRaining, daysUntilStopsRaining);
+    }
+
+    /**
+     * @return The tuning parameters of the simulation. Parameters the
+     *         checkpoint does not mention have their default values.
+     * @throws IllegalStateException If the checkpoint has a parameter
+     *         this version of the simulation does not know.
+     */
+    public SimulationParameters getParameters()
+    {
+        SimulationParameters parameters = new SimulationParameters();
+        for(int i = 0; i < parameterKeys.length; i++) {
+            try {
+                parameters.set(Parameter.forKey(parameterKeys[i]), parameterValues[i]);
+            }
+            catch(IllegalArgumentException e) {
+                throw new IllegalStateException("The checkpoint has an unknown parameter " + parameterKeys[i], e);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @return The number of animals in the checkpoint.
+     */
+    int getAnimalCount()
+    {
+        return cells.length;
+    }
+
+    /**
+     * @return The name of the species of an animal.
+     */
+    String getSpecies(int animal)
+    {
+        return species[speciesOf[animal]];
+    }
+
+    /**
+     * @return The cell of an animal.
+     */
+    int getCell(int animal)
+    {
+        return cells[animal];
+    }
+
+    /**
+     * @return Whether an animal is sick.
+     */
+    boolean isSick(int animal)
+    {
+        return (flags[animal] & SICK) != 0;
+    }
+
+    /**
+     * @return The step at which the checkpoint was taken.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Write the checkpoint to a file. The data goes to a temporary file
+     * first, which is then moved over the given one, so a crash while
+     * writing never leaves a damaged checkpoint behind.
+     * @param file The file to write.
+     * @param compress Whether to compress the file with GZIP.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file, boolean compress) throws IOException
+    {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                   StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            WritableByteChannel out = channel;
+            if(compress) {
+                out = Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            }
+            writeTo(out);
+            if(compress) {
+                out.close();
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a checkpoint, compressed or not.
+     * @param file The file to read.
+     * @return The checkpoint.
+     * @throws IOException If the file cannot be read or is not a checkpoint.
+     */
+    public static Checkpoint read(Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(2);
+            channel.read(start, 0);
+            ReadableByteChannel in = channel;
+            if(start.position() == 2 && (start.get(0) & 0xff) == 0x1f && (start.get(1) & 0xff) == 0x8b) {
+                in = Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+            }
+            return readFrom(in);
+        }
+    }
+
+    private void writeTo(WritableByteChannel channel) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putInt(depth).putInt(width).putInt(step);
+        buffer.put((byte) (isRaining ? 1 : 0)).putInt(daysUntilStopsRaining);
+        buffer.putInt(parameterKeys.length);
+        for(int i = 0; i < parameterKeys.length; i++) {
+            putBytes(channel, buffer, parameterKeys[i].getBytes(StandardCharsets.UTF_8));
+            ensure(channel, buffer, 8);
+            buffer.putDouble(parameterValues[i]);
+        }
+        ensure(channel, buffer, 9);
+        buffer.put((byte) (useStreams ? 1 : 0)).putLong(streamSeed);
+        ensure(channel, buffer, 8);
+        buffer.putLong(sharedRandom);
+        putBytes(channel, buffer, water.toByteArray());
+        putBytes(channel, buffer, plants.toByteArray());
+        ensure(channel, buffer, 4);
+        buffer.putInt(species.length);
+        for(String name : species) {
+            putBytes(channel, buffer, name.getBytes(StandardCharsets.UTF_8));
+        }
+        ensure(channel, buffer, 4);
+        buffer.putInt(cells.length);
+        for(int i = 0; i < cells.length; i++) {
+            ensure(channel, buffer, 19);
+            buffer.putShort(speciesOf[i]).putInt(cells[i]).putInt(ages[i]).put(flags[i])
+                  .putInt(stepsSick[i]).putInt(foodLevels[i]);
+        }
+        flush(channel, buffer);
+    }
+
+    private static Checkpoint readFrom(ReadableByteChannel channel) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip();
+        require(channel, buffer, 8);
+        if(buffer.getInt() != MAGIC) {
+            throw new IOException("Not a checkpoint");
+        }
+        int version = buffer.getInt();
+        if(version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version);
+        }
+        require(channel, buffer, HEADER_SIZE);
+        int depth = buffer.getInt();
+        int width = buffer.getInt();
+        int step = buffer.getInt();
+        boolean isRaining = buffer.get() != 0;
+        int daysUntilStopsRaining = buffer.getInt();
+        String[] parameterKeys = new String[buffer.getInt()];
+        double[] parameterValues = new double[parameterKeys.length];
+        for(int i = 0; i < parameterKeys.length; i++) {
+            parameterKeys[i] = new String(getBytes(channel, buffer), StandardCharsets.UTF_8);
+            require(channel, buffer, 8);
+            parameterValues[i] = buffer.getDouble();
+        }
+        require(channel, buffer, 9);
+        boolean useStreams = buffer.get() != 0;
+        long streamSeed = buffer.getLong();
+        require(channel, buffer, 8);
+        long sharedRandom = buffer.getLong();
+        BitSet water = BitSet.valueOf(getBytes(channel, buffer));
+        BitSet plants = BitSet.valueOf(getBytes(channel, buffer));
+        require(channel, buffer, 4);
+        String[] species = new String[buffer.getInt()];
+        for(int i = 0; i < species.length; i++) {
+            species[i] = new String(getBytes(channel, buffer), StandardCharsets.UTF_8);
+        }
+        require(channel, buffer, 4);
+        Checkpoint checkpoint = new Checkpoint(depth, width, step, isRaining, daysUntilStopsRaining,
+                                               parameterKeys, parameterValues,
+                                               useStreams, streamSeed, sharedRandom,
+                                               water, plants, species, buffer.getInt());
+        for(int i = 0; i < checkpoint.cells.length; i++) {
+            require(channel, buffer, 19);
+            checkpoint.speciesOf[i] = buffer.getShort();
+            checkpoint.cells[i] = buffer.getInt();
+            checkpoint.ages[i] = buffer.getInt();
+            checkpoint.flags[i] = buffer.get();
+            checkpoint.stepsSick[i] = buffer.getInt();
+            checkpoint.foodLevels[i] = buffer.getInt();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Write a length followed by the bytes.
+     */
+    private static void putBytes(WritableByteChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException
+    {
+        ensure(channel, buffer, 4);
+        buffer.putInt(bytes.length);
+        int offset = 0;
+        while(offset < bytes.length) {
+            ensure(channel, buffer, 1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Read a length followed by the bytes.
+     */
+    private static byte[] getBytes(ReadableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        require(channel, buffer, 4);
+        byte[] bytes = new byte[buffer.getInt()];
+        int offset = 0;
+        while(offset < bytes.length) {
+            require(channel, buffer, 1);
+            int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.get(bytes, offset, length);
+            offset += length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Make room for the given number of bytes in the buffer, writing
+     * out what it holds if necessary.
+     */
+    private static void ensure(WritableByteChannel channel, ByteBuffer buffer, int bytes) throws IOException
+    {
+        if(buffer.remaining() < bytes) {
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(WritableByteChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Make sure the buffer holds at least the given number of unread
+     * bytes, reading more from the channel if necessary.
+     */
+    private static void require(ReadableByteChannel channel, ByteBuffer buffer, int bytes) throws IOException
+    {
+        if(buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while(buffer.position() < bytes) {
+            if(channel.read(buffer) < 0) {
+                throw new EOFException("The checkpoint is truncated");
+            }
+        }
+        buffer.flip();
+    }
+}
@@ -0,0 +1,112 @@
+package src;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writes checkpoints of a simulation in the background. Register it as
+ * an observer that is called every N steps (see Simulator.checkpointEvery).
+ * The snapshot is taken in memory on the simulation thread; compressing
+ * and writing it happens on a thread of its own, so the step loop only
+ * waits for the copy. If the previous checkpoint is still being written
+ * when the next one is due, the new one is skipped rather than queued.
+ *
+ * Checkpoints are named after their step, e.g. checkpoint-000001440.sim.
+ */
+public class CheckpointWriter implements SimulationObserver
+{
+    private static final String PREFIX = "checkpoint-";
+    private static final String SUFFIX = ".sim";
+
+    private final Simulator simulator;
+    private final Path directory;
+    private final boolean compress;
+    private final ExecutorService executor;
+    // The checkpoint being written, if any.
+    private Future<?> pending;
+
+    /**
+     * Create a writer for the checkpoints of a simulation.
+     * @param simulator The simulation to checkpoint.
+     * @param directory The directory to write the checkpoints to.
+     * @param compress Whether to compress the checkpoints.
+     */
+    public CheckpointWriter(Simulator simulator, Path directory, boolean compress)
+    {
+        this.simulator = simulator;
+        this.directory = directory;
+        this.compress = compress;
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void simulationUpdated(int step, Field field)
+    {
+        if(pending != null && !pending.isDone()) {
+            return;
+        }
+        Checkpoint checkpoint = simulator.captureCheckpoint();
+        pending = executor.submit(() -> {
+            try {
+                checkpoint.write(fileFor(directory, checkpoint.getStep()), compress);
+            }
+            catch(IOException e) {
+                System.err.println("Could not write the checkpoint of step " + checkpoint.getStep() + ": " + e);
+            }
+        });
+    }
+
+    /**
+     * Wait for the checkpoint being written, then stop the writer.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void close() throws InterruptedException
+    {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @return The file of the checkpoint of the given step.
+     */
+    public static Path fileFor(Path directory, int step)
+    {
+        return directory.resolve(String.format("%s%09d%s", PREFIX, step, SUFFIX));
+    }
+
+    /**
+     * Find the latest checkpoint at or before a step.
+     * @param directory The directory holding the checkpoints.
+     * @param step The step, or Integer.MAX_VALUE for the latest checkpoint.
+     * @return The checkpoint file, or null if there is none.
+     * @throws IOException If the directory cannot be read.
+     */
+    public static Path findLatest(Path directory, int step) throws IOException
+    {
+        Path latest = null;
+        int latestStep = -1;
+        try(Stream<Path> files = Files.list(directory)) {
+            for(Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if(!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+                    continue;
+                }
+                int fileStep = Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                if(fileStep <= step && fileStep > latestStep) {
+                    latest = file;
+                    latestStep = fileStep;
+                }
+            }
+        }
+        return latest;
+    }
+}
@@ -0,0 +1,224 @@
+package src;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import src.animal.CauseOfDeath;
+
+/**
+ * An append-only log of everything that changes in a field: births,
+ * deaths with their cause, moves, infections, plants growing and being
+ * eaten, and the weather of every step. Together with the checkpoints
+ * of a run, the log lets an EventReplayer rebuild the field at any step
+ * without simulating again.
+ *
+ * The log starts with a header of HEADER_SIZE bytes: the magic number,
+ * the version, the depth and the width of the field, followed by the
+ * name of each species in a slot of SPECIES_SLOT bytes indexed by
+ * its species id. After the header come records of RECORD_SIZE bytes:
+ * the step (int), the type (byte), the species (byte), an extra byte
+ * (the cause of death, or whether it rains), a spare byte, the cell
+ * (int) and an argument (int: the cell moved to, or the steps of rain
+ * left). Records are in step order, so a step can be found by binary
+ * search.
+ *
+ * Records are collected in a buffer and written out at the end of each
+ * step. Appending is synchronized, so actors may act on several threads.
+ */
+public class EventLog implements AutoCloseable
+{
+    public static final byte BIRTH = 1;
+    public static final byte DEATH = 2;
+    public static final byte MOVE = 3;
+    public static final byte INFECTION = 4;
+    public static final byte PLANT_GROWN = 5;
+    public static final byte PLANT_EATEN = 6;
+    public static final byte WEATHER = 7;
+
+    // "SIML", the first bytes of every event log.
+    static final int MAGIC = 0x53494d4c;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4096;
+    static final int RECORD_SIZE = 16;
+    // Where the species names start in the header, and the room for each.
+    static final int SPECIES_START = 64;
+    static final int SPECIES_SLOT = 62;
+    static final int MAX_SPECIES = (HEADER_SIZE - SPECIES_START) / SPECIES_SLOT;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    // Which species have their name in the header.
+    private final boolean[] named;
+    // The step events are recorded for.
+    private volatile int step;
+
+    private EventLog(FileChannel channel)
+    {
+        this.channel = channel;
+        buffer = ByteBuffer.allocateDirect(1 << 20);
+        named = new boolean[MAX_SPECIES];
+    }
+
+    /**
+     * Open a log to append to, creating it if it does not exist.
+     * @param file The log file.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @return The log.
+     * @throws IOException If the file cannot be opened or is for another field.
+     */
+    public static EventLog open(Path file, int depth, int width) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        EventLog log = new EventLog(channel);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if(channel.size() == 0) {
+            header.putInt(MAGIC).putInt(VERSION).putInt(depth).putInt(width);
+            header.clear();
+            channel.write(header, 0);
+        }
+        else {
+            channel.read(header, 0);
+            if(header.getInt(0) != MAGIC || header.getInt(8) != depth || header.getInt(12) != width) {
+                channel.close();
+                throw new IOException(file + " is not an event log of a " + depth + "x" + width + " field");
+            }
+            for(int id = 0; id < MAX_SPECIES; id++) {
+                log.named[id] = header.getShort(SPECIES_START + id * SPECIES_SLOT) != 0;
+            }
+            // Drop a record that was only partly written.
+            long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+        }
+        channel.position(channel.size());
+        return log;
+    }
+
+    /**
+     * Record the following events for the given step.
+     * @param step The step that is starting.
+     */
+    public void beginStep(int step)
+    {
+        this.step = step;
+    }
+
+    /**
+     * Write out the events of the step that has ended.
+     */
+    public synchronized void endStep()
+    {
+        flush();
+    }
+
+    public void born(int species, int cell)
+    {
+        append(BIRTH, species, 0, cell, 0);
+    }
+
+    public void died(int species, int cell, CauseOfDeath cause)
+    {
+        append(DEATH, species, cause.ordinal(), cell, 0);
+    }
+
+    public void moved(int species, int from, int to)
+    {
+        append(MOVE, species, 0, from, to);
+    }
+
+    public void infected(int species, int cell)
+    {
+        append(INFECTION, species, 0, cell, 0);
+    }
+
+    public void plantGrown(int cell)
+    {
+        append(PLANT_GROWN, 0, 0, cell, 0);
+    }
+
+    public void plantEaten(int cell)
+    {
+        append(PLANT_EATEN, 0, 0, cell, 0);
+    }
+
+    public void weather(boolean isRaining, int daysUntilStopsRaining)
+    {
+        append(WEATHER, 0, isRaining ? 1 : 0, -1, daysUntilStopsRaining);
+    }
+
+    /**
+     * Forget every event after a step, e.g. when a run is resumed from
+     * a checkpoint of that step.
+     * @param lastStep The last step to keep.
+     * @throws IOException If the log cannot be truncated.
+     */
+    public synchronized void truncateAfter(int lastStep) throws IOException
+    {
+        flush();
+        long keep = EventReplayer.firstRecordAfter(channel, lastStep);
+        channel.truncate(HEADER_SIZE + keep * RECORD_SIZE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * Write out the buffered events and close the log.
+     * @throws IOException If the log cannot be written.
+     */
+    public synchronized void close() throws IOException
+    {
+        flush();
+        channel.close();
+    }
+
+    private synchronized void append(byte type, int species, int extra, int cell, int arg)
+    {
+        if(type <= INFECTION && !named[species]) {
+            name(species);
+        }
+        if(buffer.remaining() < RECORD_SIZE) {
+            flush();
+        }
+        buffer.putInt(step).put(type).put((byte) species).put((byte) extra).put((byte) 0)
+              .putInt(cell).putInt(arg);
+    }
+
+    /**
+     * Write the name of a species into its slot of the header.
+     */
+    private void name(int species)
+    {
+        byte[] name = Population.nameOf(species).getBytes(StandardCharsets.UTF_8);
+        if(species >= MAX_SPECIES || name.length > SPECIES_SLOT - 2) {
+            throw new IllegalStateException("Cannot log species " + Population.nameOf(species));
+        }
+        ByteBuffer slot = ByteBuffer.allocate(2 + name.length);
+        slot.putShort((short) name.length).put(name).flip();
+        try {
+            channel.write(slot, SPECIES_START + species * SPECIES_SLOT);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        named[species] = true;
+    }
+
+    private void flush()
+    {
+        buffer.flip();
+        try {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,200 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Rebuilds the field of a recorded run at any step, from the latest
+ * checkpoint at or before that step and the events recorded since (see
+ * EventLog). This only reads and applies records, so it is much faster
+ * than simulating the steps again.
+ *
+ * The rebuilt field holds the floor types, the plants, the weather and,
+ * in place of the animals, ReplayedAnimal objects that tell the species
+ * and whether the animal is sick. It does not know the age or hunger of
+ * the animals; restore the checkpoint for that.
+ */
+public class EventReplayer
+{
+    /**
+     * An animal as far as the event log knows it.
+     */
+    public static final class ReplayedAnimal
+    {
+        private final String species;
+        private boolean sick;
+
+        ReplayedAnimal(String species, boolean sick)
+        {
+            this.species = species;
+            this.sick = sick;
+        }
+
+        /**
+         * @return The name of the species, e.g. Lion.
+         */
+        public String getSpecies()
+        {
+            return species;
+        }
+
+        public boolean isSick()
+        {
+            return sick;
+        }
+    }
+
+    private final Path log;
+    private final Path checkpoints;
+
+    /**
+     * Create a replayer for a recorded run.
+     * @param log The event log of the run.
+     * @param checkpoints The directory with the checkpoints of the run.
+     */
+    public EventReplayer(Path log, Path checkpoints)
+    {
+        this.log = log;
+        this.checkpoints = checkpoints;
+    }
+
+    /**
+     * Rebuild the field as it was at the end of a step.
+     * @param step The step.
+     * @return The field.
+     * @throws IOException If there is no checkpoint before the step, or a file cannot be read.
+     */
+    public Field stateAt(int step) throws IOException
+    {
+        Path file = CheckpointWriter.findLatest(checkpoints, step);
+        if(file == null) {
+            throw new IOException("No checkpoint at or before step " + step);
+        }
+        Checkpoint checkpoint = Checkpoint.read(file);
+        Field field = new Field(checkpoint.getDepth(), checkpoint.getWidth());
+        checkpoint.restoreLayers(field);
+        for(int animal = 0; animal < checkpoint.getAnimalCount(); animal++) {
+            field.place(new ReplayedAnimal(checkpoint.getSpecies(animal), checkpoint.isSick(animal)),
+                        field.locationOf(checkpoint.getCell(animal)));
+        }
+
+        try(FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            String[] species = readSpecies(channel);
+            long end = channel.size();
+            long position = EventLog.HEADER_SIZE + firstRecordAfter(channel, checkpoint.getStep()) * EventLog.RECORD_SIZE;
+            ByteBuffer buffer = ByteBuffer.allocate(EventLog.RECORD_SIZE * 65536);
+            while(position < end) {
+                buffer.clear();
+                channel.read(buffer, position);
+                buffer.flip();
+                position += buffer.remaining();
+                while(buffer.remaining() >= EventLog.RECORD_SIZE) {
+                    if(buffer.getInt(buffer.position()) > step) {
+                        return field;
+                    }
+                    apply(field, buffer, species);
+                }
+                position -= buffer.remaining();
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Apply the record at the position of the buffer to the field.
+     */
+    private static void apply(Field field, ByteBuffer buffer, String[] species)
+    {
+        buffer.getInt();
+        byte type = buffer.get();
+        int speciesId = buffer.get();
+        int extra = buffer.get();
+        buffer.get();
+        int cell = buffer.getInt();
+        int arg = buffer.getInt();
+        switch(type) {
+            case EventLog.BIRTH:
+                field.place(new ReplayedAnimal(species[speciesId], false), field.locationOf(cell));
+                break;
+            case EventLog.DEATH:
+                field.clearAnimal(field.locationOf(cell));
+                break;
+            case EventLog.MOVE:
+                Object animal = field.getObjectAt(cell);
+                field.clearAnimal(field.locationOf(cell));
+                field.place(animal, field.locationOf(arg));
+                break;
+            case EventLog.INFECTION:
+                Object infected = field.getObjectAt(cell);
+                if(infected instanceof ReplayedAnimal) {
+                    ((ReplayedAnimal) infected).sick = true;
+                }
+                break;
+            case EventLog.PLANT_GROWN:
+                field.placePlant(field.locationOf(cell));
+                break;
+            case EventLog.PLANT_EATEN:
+                field.clearPlant(field.locationOf(cell));
+                break;
+            case EventLog.WEATHER:
+                field.setWeather(extra != 0, arg);
+                break;
+            default:
+                throw new IllegalStateException("Unknown event type " + type);
+        }
+    }
+
+    /**
+     * Read the species names from the header of a log.
+     */
+    private static String[] readSpecies(FileChannel channel) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(EventLog.HEADER_SIZE);
+        channel.read(header, 0);
+        if(header.getInt(0) != EventLog.MAGIC) {
+            throw new IOException("Not an event log");
+        }
+        if(header.getInt(4) != EventLog.VERSION) {
+            throw new IOException("Unsupported event log version " + header.getInt(4));
+        }
+        String[] species = new String[EventLog.MAX_SPECIES];
+        for(int id = 0; id < species.length; id++) {
+            int start = EventLog.SPECIES_START + id * EventLog.SPECIES_SLOT;
+            byte[] name = new byte[header.getShort(start)];
+            header.get(start + 2, name);
+            species[id] = new String(name, StandardCharsets.UTF_8);
+        }
+        return species;
+    }
+
+    /**
+     * Find the first record of a log that belongs to a later step than
+     * the given one, by binary search over the records.
+     * @param channel The log.
+     * @param step The step.
+     * @return The number of the record, or the number of records if there is none.
+     * @throws IOException If the log cannot be read.
+     */
+    static long firstRecordAfter(FileChannel channel, int step) throws IOException
+    {
+        ByteBuffer value = ByteBuffer.allocate(4);
+        long low = 0;
+        long high = (channel.size() - EventLog.HEADER_SIZE) / EventLog.RECORD_SIZE;
+        while(low < high) {
+            long middle = (low + high) >>> 1;
+            value.clear();
+            channel.read(value, EventLog.HEADER_SIZE + middle * EventLog.RECORD_SIZE);
+            if(value.getInt(0) <= step) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -1,8 +1,12 @@
 package src;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
 
 import src.fieldType.Ground;
 import src.fieldType.Water;
@@ -15,29 +19,136 @@ import src.fieldType.Water;
  */
 public class Field
 {
-    // A random number generator for providing random locations.
-    private static final Random rand = Randomizer.getRandom();
+    // Row and column offsets of the eight neighbours of a cell.
+    private static final int[] ROW_OFFSETS = { -1, -1, -1, 0, 0, 1, 1, 1 };
+    private static final int[] COL_OFFSETS = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    // The number of precomputed neighbour orders.
+    private static final int PERMUTATION_COUNT = 256;
+    // PERMUTATION_COUNT random orders of the eight neighbour offsets,
+    // stored back to back. Picking one at random gives a shuffled
+    // neighbourhood without shuffling (or allocating) on every call.
+    private static final byte[] PERMUTATIONS = createPermutations();
     
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the animals.
-    private Object[][][] field;
+    // Storage for the floor types, animals and plants.
+    private FieldStorage field;
+    // The vegetation, kept as a density layer of the storage.
+    private PlantLayer plants;
+    // Which cells have water close to them. Built from the floor types
+    // on first use and dropped whenever a floor type changes.
+    private volatile WaterProximityIndex waterIndex;
+    // The canonical location of every cell, one array per row.
+    // Rows are created the first time one of their cells is asked for.
+    private final AtomicReferenceArray<Location[]> locations;
     private boolean isRaining; 
     private int daysUntilStopsRaining;
-    private double rainingProb = 0.2;
+    // The tuning parameters of the simulation on this field.
+    private SimulationParameters parameters = new SimulationParameters();
+    // The per-actor random streams, or null to use the shared generator.
+    private RandomStreams randomStreams;
+    // The number of living animals of each species.
+    private final Population population = new Population();
+    // Where births, deaths and other changes are recorded, or null.
+    private volatile EventLog eventLog;
+    // Where the males of each species are.
+    private final MaleIndex males;
+    // The cells changed since a view last drew them, or null until a view asks.
+    private volatile ChangedCells changes;
     //A day real day has 1440 min so 1440 steps is the value we chose to represent a day.
     public static final int FULL_DAY_LENGTH = 1440; 
 
     /**
-     * Represent a field of the given dimensions.
+     * The ways a field can lay out its cells in memory.
+     * LEGACY keeps an Object[depth][width][3] array, PACKED keeps one
+     * flat array per layer with floor types stored as bytes.
+     */
+    public enum Layout
+    {
+        LEGACY, PACKED
+    }
+
+    /**
+     * Represent a field of the given dimensions, using the packed layout.
      * @param depth The depth of the field.
      * @param width The width of the field.
      */
     public Field(int depth, int width)
+    {
+        this(depth, width, Layout.PACKED);
+    }
+
+    /**
+     * Represent a field of the given dimensions.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param layout How the cells are stored in memory.
+     */
+    public Field(int depth, int width, Layout layout)
+    {
+        this(depth, width, layout == Layout.LEGACY ? new LegacyFieldStorage(depth, width)
+                                                   : new PackedFieldStorage(depth, width));
+    }
+
+    /**
+     * Represent a field of the given dimensions kept in the given storage.
+     */
+    private Field(int depth, int width, FieldStorage storage)
     {
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width][3];
+        field = storage;
+        plants = new PlantLayer(field, depth, width);
+        locations = new AtomicReferenceArray<>(depth);
+        males = new MaleIndex(depth, width);
+    }
+
+    /**
+     * Represent a field kept in a memory-mapped world file rather than on
+     * the heap, for fields larger than the heap. If the file exists, its
+     * floor types and plants are used as they are; the animals of the
+     * run that wrote it are gone.
+     * 
+     * Cells are still indexed with an int, so depth * width may not be
+     * above Integer.MAX_VALUE, and a few bitmaps of one bit per cell
+     * stay on the heap (see MappedFieldStorage).
+     * @param file The world file, created if it does not exist.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @return The field.
+     * @throws IOException If the file cannot be mapped or is for another size.
+     * @throws IllegalArgumentException If depth * width is above Integer.MAX_VALUE.
+     */
+    public static Field map(Path file, int depth, int width) throws IOException
+    {
+        Field field = new Field(depth, width, new MappedFieldStorage(file, depth, width, false));
+        field.plants.recount();
+        return field;
+    }
+
+    /**
+     * Look at the world file of another simulation, e.g. from an analysis
+     * tool while that simulation runs. The field cannot be changed and
+     * has no animal objects, only the floor types and plants.
+     * @param file The world file.
+     * @return The field.
+     * @throws IOException If the file is not a world file.
+     * @throws IllegalArgumentException If the world has more than Integer.MAX_VALUE cells.
+     */
+    public static Field mapReadOnly(Path file) throws IOException
+    {
+        int[] size = MappedFieldStorage.readSize(file);
+        Field field = new Field(size[0], size[1], new MappedFieldStorage(file, size[0], size[1], true));
+        field.plants.recount();
+        return field;
+    }
+
+    /**
+     * Write the field through to its world file, if it has one.
+     */
+    public void flush()
+    {
+        field.flush();
     }
     
     /**
@@ -59,18 +170,84 @@ public class Field
     		daysUntilStopsRaining--;
     		this.isRaining = daysUntilStopsRaining > 0;
     	} else {
-    		this.isRaining = rand.nextDouble() < rainingProb;
+    		Random rand = Randomizer.current();
+    		this.isRaining = rand.nextDouble() < parameters.get(Parameter.RAINING_PROBABILITY);
     		if(this.isRaining) {
     			daysUntilStopsRaining = rand.nextInt(50);
     		}
     	}
-    	
+    	if(eventLog != null) {
+    		eventLog.weather(isRaining, daysUntilStopsRaining);
+    	}
     }
     
     public boolean isRaining() {
     	return this.isRaining;
     }
     
+    /**
+     * @return The number of steps left before the rain stops.
+     */
+    int getDaysUntilStopsRaining() {
+    	return daysUntilStopsRaining;
+    }
+    
+    /**
+     * Set the weather, e.g. when restoring a checkpoint.
+     * @param isRaining Whether it is raining.
+     * @param daysUntilStopsRaining The number of steps left before the rain stops.
+     */
+    void setWeather(boolean isRaining, int daysUntilStopsRaining) {
+    	this.isRaining = isRaining;
+    	this.daysUntilStopsRaining = daysUntilStopsRaining;
+    }
+    
+    /**
+     * @return The per-actor random streams of this field, or null if
+     * everything draws from the shared generator.
+     */
+    public RandomStreams getRandomStreams() {
+    	return randomStreams;
+    }
+    
+    /**
+     * @return The tuning parameters of the simulation on this field.
+     */
+    public SimulationParameters getParameters() {
+    	return parameters;
+    }
+    
+    /**
+     * Tune the simulation on this field.
+     * @param parameters The parameters to use from now on.
+     */
+    public void setParameters(SimulationParameters parameters) {
+    	this.parameters = parameters;
+    }
+    
+    /**
+     * @return The log the changes to this field are recorded in, or null.
+     */
+    public EventLog getEventLog() {
+    	return eventLog;
+    }
+    
+    /**
+     * Record the changes to this field from now on, or stop recording.
+     * @param eventLog The log to record in, or null.
+     */
+    public void setEventLog(EventLog eventLog) {
+    	this.eventLog = eventLog;
+    }
+    
+    /**
+     * Choose where the actors of this field draw random numbers from.
+     * @param randomStreams Per-actor streams, or null for the shared generator.
+     */
+    public void setRandomStreams(RandomStreams randomStreams) {
+    	this.randomStreams = randomStreams;
+    }
+    
     
     /**
      * Empty the field.
@@ -84,21 +261,18 @@ public class Field
 
     public void clearAnimalsAndPlants()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col][1] = null;
-                field[row][col][2] = null;
-            }
-        }
+        field.clearAnimalsAndPlants();
+        plants.cleared();
+        population.clear();
+        males.clear();
+        changedAll();
     }
     
     public void clearFloorTypes()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col][0] = null;
-            }
-        }
+        field.clearFloorTypes();
+        waterIndex = null;
+        changedAll();
     }
     
     /**
@@ -107,12 +281,125 @@ public class Field
      */
     public void clearAnimal(Location location)
     {
-        field[location.getRow()][location.getCol()][1] = null;
+        field.setAnimal(location.getRow(), location.getCol(), null);
+        changed(indexOf(location));
     }
     
+    /**
+     * Remove the plant at the given location, if any.
+     * @param location The location to clear.
+     */
     public void clearPlant(Location location)
     {
-        field[location.getRow()][location.getCol()][2] = null;
+        int index = indexOf(location);
+        plants.remove(index);
+        changed(index);
+    }
+    
+    /**
+     * Eat the plant in the cell with the given index.
+     * @param index The index of the cell.
+     * @return true if there was a plant to eat.
+     */
+    public boolean eatPlant(int index)
+    {
+        boolean eaten = plants.remove(index);
+        changed(index);
+        if(eaten && eventLog != null) {
+            eventLog.plantEaten(index);
+        }
+        return eaten;
+    }
+    
+    /**
+     * Let the plants of the field spread for one step.
+     * Every plant may seed the plant free ground around it, more likely
+     * when water is close or when it rains (see Plant).
+     */
+    public void growPlants()
+    {
+        plants.grow(this, Randomizer.current());
+    }
+    
+    /**
+     * @return The number of living animals of each species.
+     */
+    public Population getPopulation()
+    {
+        return population;
+    }
+    
+    /**
+     * @return The number of cells covered by plants.
+     */
+    public int getPlantCount()
+    {
+        return plants.getCount();
+    }
+    
+    /**
+     * Hand every cell whose animal, plant or floor type changed since the
+     * last call to the action, lowest index first, so that a view can
+     * redraw only those. Changes are only recorded once this has been
+     * called, and by a single view; call it between steps.
+     * @param action What to do with each changed cell.
+     * @return false if the whole field must be redrawn instead, as on the
+     *         first call and after the field was cleared. The action is
+     *         then not called.
+     */
+    public boolean takeChangedCells(IntConsumer action)
+    {
+        if(changes == null) {
+            changes = new ChangedCells(depth * width);
+        }
+        return changes.take(action);
+    }
+    
+    /**
+     * Record that a cell changed, if a view is following the changes.
+     * @param index The index of the cell.
+     */
+    void changed(int index)
+    {
+        ChangedCells changes = this.changes;
+        if(changes != null) {
+            changes.mark(index);
+        }
+    }
+    
+    /**
+     * Record that every cell changed, if a view is following the changes.
+     */
+    private void changedAll()
+    {
+        ChangedCells changes = this.changes;
+        if(changes != null) {
+            changes.markAll();
+        }
+    }
+    
+    /**
+     * Record that a male of the given species has arrived in a cell or
+     * left it. Animals keep this up to date as they move and die.
+     * @param speciesId The id of the species, see Population.
+     * @param index The index of the cell.
+     * @param male true if the male arrived, false if it left.
+     */
+    public void setMale(int speciesId, int index, boolean male)
+    {
+        males.set(speciesId, index, male);
+    }
+    
+    /**
+     * Tell whether a male of the given species is in one of the cells
+     * adjacent to the given one. This is a few bit operations.
+     * @param speciesId The id of the species, see Population.
+     * @param index The index of a cell not holding a male of the species.
+     * @return true if a male of the species is next to the cell.
+     */
+    public boolean hasMaleNextTo(int speciesId, int index)
+    {
+        return males.hasMaleAround(speciesId, index);
     }
     
     /**
@@ -125,7 +412,8 @@ public class Field
      */
     public void place(Object animal, int row, int col)
     {
-        place(animal, new Location(row, col));
+        field.setAnimal(row, col, animal);
+        changed(row * width + col);
     }
     
     /**
@@ -135,7 +423,9 @@ public class Field
      * @param col Column coordinate of the location.
      */
     public void setFloorType(Object floorType, int row, int col) {
-    	setFloorType(floorType, new Location(row, col));
+    	field.setFloorType(row, col, floorType);
+    	waterIndex = null;
+    	changed(row * width + col);
     }
     
     /**
@@ -147,23 +437,24 @@ public class Field
      */
     public void place(Object animal, Location location)
     {
-    	field[location.getRow()][location.getCol()][1] = animal;
+    	field.setAnimal(location.getRow(), location.getCol(), animal);
+    	changed(indexOf(location));
     }
     
     /**
-     * Place a plant at the given location.
-     * @param plant The plant to be placed.
+     * Grow a plant at the given location.
      * @param location Where to place the plant.
      */
-    
-    public void placePlant(Object plant, Location location)
+    public void placePlant(Location location)
     {
-    	field[location.getRow()][location.getCol()][2] = plant;
+    	int index = indexOf(location);
+    	plants.place(index);
+    	changed(index);
     }
     
     public void setFloorType(Object floorType, Location location)
     {
-        field[location.getRow()][location.getCol()][0] = floorType;
+        setFloorType(floorType, location.getRow(), location.getCol());
     }
     
     /**
@@ -177,13 +468,13 @@ public class Field
     }
     
     /**
-     * Return the plant at the given location, if any.
+     * Tell whether a plant grows at the given location.
      * @param location Where in the field.
-     * @return The plant at the given location, or null if there is none.
+     * @return true if there is a plant at the given location.
      */
-    public Object getPlantAt(Location location)
+    public boolean hasPlantAt(Location location)
     {
-        return getPlantAt(location.getRow(), location.getCol());
+        return plants.has(indexOf(location));
     }
     
     /**
@@ -194,18 +485,18 @@ public class Field
      */
     public Object getObjectAt(int row, int col)
     {
-        return field[row][col][1];
+        return field.getAnimal(row, col);
     }
     
     /**
-     * Return the plant at the given location, if any.
+     * Tell whether a plant grows at the given location.
      * @param row The desired row.
      * @param col The desired column.
-     * @return The plant at the given location, or null if there is none.
+     * @return true if there is a plant at the given location.
      */
-    public Object getPlantAt(int row, int col)
+    public boolean hasPlantAt(int row, int col)
     {
-        return field[row][col][2];
+        return field.getPlant(row, col) != 0;
     }
     
     /**
@@ -222,7 +513,276 @@ public class Field
     
     public Object getFloorTypeAt(int row, int col)
     {
-        return field[row][col][0];
+        return field.getFloorType(row, col);
+    }
+    
+    /**
+     * Return the index of a location, i.e. row * width + col.
+     * Cell indices are used by the allocation-free neighbour methods.
+     * @param location A location within the field.
+     * @return The index of the location's cell.
+     */
+    public int indexOf(Location location)
+    {
+        return location.getRow() * width + location.getCol();
+    }
+    
+    /**
+     * Return the canonical location of a cell index.
+     * @param index The index of a cell.
+     * @return The location of that cell.
+     */
+    public Location locationOf(int index)
+    {
+        return getLocation(index / width, index % width);
+    }
+    
+    /**
+     * Return the canonical location of a cell. The same instance is
+     * returned for a cell every time, so no location is created on the
+     * hot path and locations of this field can be compared with ==.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The location of that cell.
+     */
+    public Location getLocation(int row, int col)
+    {
+        Location[] rowLocations = locations.get(row);
+        if(rowLocations == null) {
+            rowLocations = new Location[width];
+            for(int c = 0; c < width; c++) {
+                rowLocations[c] = new Location(row, c);
+            }
+            // If another thread got there first, use its row so that
+            // every cell keeps a single instance.
+            if(!locations.compareAndSet(row, null, rowLocations)) {
+                rowLocations = locations.get(row);
+            }
+        }
+        return rowLocations[col];
+    }
+    
+    /**
+     * Return the animal in the cell with the given index, if any.
+     * @param index The index of the cell.
+     * @return The animal at the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int index)
+    {
+        return field.getAnimal(index);
+    }
+    
+    /**
+     * Tell whether a plant grows in the cell with the given index.
+     * @param index The index of the cell.
+     * @return true if there is a plant in the given cell.
+     */
+    public boolean hasPlant(int index)
+    {
+        return plants.has(index);
+    }
+    
+    /**
+     * Return the floor type of the cell with the given index.
+     * @param index The index of the cell.
+     * @return The floor type at the given cell, or null if there is none.
+     */
+    public Object getFloorTypeAt(int index)
+    {
+        return field.getFloorType(index);
+    }
+    
+    /**
+     * Write the indices of the cells adjacent to the given one into
+     * the buffer, in a random order. The cell itself is not included
+     * and all cells lie within the grid. Nothing is allocated.
+     * @param index The cell from which to generate adjacencies.
+     * @param out A buffer of at least eight elements to receive the indices.
+     * @return The number of adjacent cells written to the buffer.
+     */
+    public int adjacentCells(int index, int[] out)
+    {
+        int row = index / width;
+        int col = index % width;
+        int permutation = Randomizer.current().nextInt(PERMUTATION_COUNT) * 8;
+        int count = 0;
+        for(int i = 0; i < 8; i++) {
+            int direction = PERMUTATIONS[permutation + i];
+            int nextRow = row + ROW_OFFSETS[direction];
+            int nextCol = col + COL_OFFSETS[direction];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                out[count++] = nextRow * width + nextCol;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Write the indices of the cells adjacent to the given one into
+     * the buffer, always in the same order. Cheaper than adjacentCells
+     * where the order does not matter, as no random number is drawn.
+     * @param index The cell from which to generate adjacencies.
+     * @param out A buffer of at least eight elements to receive the indices.
+     * @return The number of adjacent cells written to the buffer.
+     */
+    public int neighbourCells(int index, int[] out)
+    {
+        int row = index / width;
+        int col = index % width;
+        int count = 0;
+        for(int direction = 0; direction < 8; direction++) {
+            int nextRow = row + ROW_OFFSETS[direction];
+            int nextCol = col + COL_OFFSETS[direction];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                out[count++] = nextRow * width + nextCol;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Write the free adjacent cells into the buffer, in a random order.
+     * @param index The cell from which to generate adjacencies.
+     * @param out A buffer of at least eight elements to receive the indices.
+     * @return The number of free adjacent cells written to the buffer.
+     */
+    public int freeAdjacentCells(int index, int[] out)
+    {
+        int count = adjacentCells(index, out);
+        int free = 0;
+        for(int i = 0; i < count; i++) {
+            if(field.getAnimal(out[i]) == null) {
+                out[free++] = out[i];
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Write the free ground adjacent cells into the buffer, in a random order.
+     * @param index The cell from which to generate adjacencies.
+     * @param out A buffer of at least eight elements to receive the indices.
+     * @return The number of free adjacent ground cells written to the buffer.
+     */
+    public int freeGroundAdjacentCells(int index, int[] out)
+    {
+        int count = adjacentCells(index, out);
+        int free = 0;
+        for(int i = 0; i < count; i++) {
+            if(field.getAnimal(out[i]) == null && field.getFloorType(out[i]) instanceof Ground) {
+                out[free++] = out[i];
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Write the free water adjacent cells into the buffer, in a random order.
+     * @param index The cell from which to generate adjacencies.
+     * @param out A buffer of at least eight elements to receive the indices.
+     * @return The number of free adjacent water cells written to the buffer.
+     */
+    public int freeWaterAdjacentCells(int index, int[] out)
+    {
+        int count = adjacentCells(index, out);
+        int free = 0;
+        for(int i = 0; i < count; i++) {
+            if(field.getAnimal(out[i]) == null && field.getFloorType(out[i]) instanceof Water) {
+                out[free++] = out[i];
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Write the adjacent ground cells that have no plant into the buffer,
+     * in a random order.
+     * @param index The cell from which to generate adjacencies.
+     * @param out A buffer of at least eight elements to receive the indices.
+     * @return The number of plant free adjacent ground cells written to the buffer.
+     */
+    public int freeFromPlantGroundAdjacentCells(int index, int[] out)
+    {
+        int count = adjacentCells(index, out);
+        int free = 0;
+        for(int i = 0; i < count; i++) {
+            if(field.getPlant(out[i]) == 0 && field.getFloorType(out[i]) instanceof Ground) {
+                out[free++] = out[i];
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Find a random free cell adjacent to the given one.
+     * @param index The cell from which to generate adjacencies.
+     * @return The index of a free adjacent cell, or -1 if there is none.
+     */
+    public int freeAdjacentCell(int index)
+    {
+        int row = index / width;
+        int col = index % width;
+        int permutation = Randomizer.current().nextInt(PERMUTATION_COUNT) * 8;
+        for(int i = 0; i < 8; i++) {
+            int direction = PERMUTATIONS[permutation + i];
+            int nextRow = row + ROW_OFFSETS[direction];
+            int nextCol = col + COL_OFFSETS[direction];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                int next = nextRow * width + nextCol;
+                if(field.getAnimal(next) == null) {
+                    return next;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Find a random free ground cell adjacent to the given one.
+     * @param index The cell from which to generate adjacencies.
+     * @return The index of a free adjacent ground cell, or -1 if there is none.
+     */
+    public int freeGroundAdjacentCell(int index)
+    {
+        int row = index / width;
+        int col = index % width;
+        int permutation = Randomizer.current().nextInt(PERMUTATION_COUNT) * 8;
+        for(int i = 0; i < 8; i++) {
+            int direction = PERMUTATIONS[permutation + i];
+            int nextRow = row + ROW_OFFSETS[direction];
+            int nextCol = col + COL_OFFSETS[direction];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                int next = nextRow * width + nextCol;
+                if(field.getAnimal(next) == null && field.getFloorType(next) instanceof Ground) {
+                    return next;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Find a random free water cell adjacent to the given one.
+     * @param index The cell from which to generate adjacencies.
+     * @return The index of a free adjacent water cell, or -1 if there is none.
+     */
+    public int freeWaterAdjacentCell(int index)
+    {
+        int row = index / width;
+        int col = index % width;
+        int permutation = Randomizer.current().nextInt(PERMUTATION_COUNT) * 8;
+        for(int i = 0; i < 8; i++) {
+            int direction = PERMUTATIONS[permutation + i];
+            int nextRow = row + ROW_OFFSETS[direction];
+            int nextCol = col + COL_OFFSETS[direction];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                int next = nextRow * width + nextCol;
+                if(field.getAnimal(next) == null && field.getFloorType(next) instanceof Water) {
+                    return next;
+                }
+            }
+        }
+        return -1;
     }
     
     /**
@@ -301,7 +861,7 @@ public class Field
         List<Location> free = new LinkedList<>();
         List<Location> adjacent = adjacentLocations(location);
         for(Location next : adjacent) {
-            if(getPlantAt(next) == null && getFloorTypeAt(next) instanceof Ground) {
+            if(!hasPlantAt(next) && getFloorTypeAt(next) instanceof Ground) {
                 free.add(next);
             }
         }
@@ -313,25 +873,34 @@ public class Field
     }
     
     /**
-     * 
+     * Tell whether there is water up to 3 squares away. The answer is
+     * looked up in an index built from the floor types, so this is
+     * constant time; the index is rebuilt after floor types change.
      * @param row The desired row.
      * @param col The desired column.
      * @return true if there is water close
      */
     public boolean isWaterClose(int row, int col) {
-    	int length = 3;     //we defined water being close to a square if its a maximum 3 length away.
-    	for (int i = 0; i < 2*length; i++) { // makes sure we  check both ways not just to the right.
-    		int rowAux = row - length + i; //rowAux is the square we want to check if its water, if yes then its already true.
-    		//The if condition below checks that we neither check above the first row or beneath lowest row. (out of map).
-    		if(rowAux < 0 || rowAux >= this.getDepth() - 1) continue; 
-			for (int j = 0; j < 2*length; j++) { //if we have a row that's in the map we go through the columns.
-				int colAux = col - length + j;   
-				if(colAux < 0 || colAux >= this.getWidth() - 1) continue; //checks that we are in bounds.
-				Object fieldType = getFloorTypeAt(rowAux, colAux);
-				if(fieldType instanceof Water) return true;  //if we found water, then returns true.
-			}
-		}
-    	return false;
+    	return waterIndex().isWaterClose(row, col);
+    }
+    
+    /**
+     * Return the water proximity index, building it if the floor types
+     * changed since it was last built.
+     * @return The index for the current floor types.
+     */
+    private WaterProximityIndex waterIndex() {
+    	WaterProximityIndex index = waterIndex;
+    	if(index == null) {
+    		synchronized(this) {
+    			index = waterIndex;
+    			if(index == null) {
+    				index = new WaterProximityIndex(field, depth, width);
+    				waterIndex = index;
+    			}
+    		}
+    	}
+    	return index;
     }
     
     /**
@@ -344,10 +913,9 @@ public class Field
      */
     public Location freeAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
+        int free = freeAdjacentCell(indexOf(location));
+        if(free >= 0) {
+            return locationOf(free);
         }
         else {
             return null;
@@ -360,10 +928,9 @@ public class Field
      */
     public Location freeGroundAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeGroundAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
+        int free = freeGroundAdjacentCell(indexOf(location));
+        if(free >= 0) {
+            return locationOf(free);
         }
         else {
             return null;
@@ -376,10 +943,9 @@ public class Field
      */
     public Location freeWaterAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeWaterAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
+        int free = freeWaterAdjacentCell(indexOf(location));
+        if(free >= 0) {
+            return locationOf(free);
         }
         else {
             return null;
@@ -397,7 +963,7 @@ public class Field
     {
         assert location != null : "Null location passed to adjacentLocations";
         // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
+        List<Location> adjacent = new LinkedList<>();
         if(location != null) {
             int row = location.getRow();
             int col = location.getCol();
@@ -408,7 +974,7 @@ public class Field
                         int nextCol = col + coffset;
                         // Exclude invalid locations and the original location.
                         if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
+                            adjacent.add(getLocation(nextRow, nextCol));
                         }
                     }
                 }
@@ -416,9 +982,9 @@ public class Field
             
             // Shuffle the list. Several other methods rely on the list
             // being in a random order.
-            Collections.shuffle(locations, rand);
+            Collections.shuffle(adjacent, Randomizer.current());
         }
-        return locations;
+        return adjacent;
     }
     
     public List<Location> getAdjacentLocations(Location location) {
@@ -442,4 +1008,37 @@ public class Field
     {
         return width;
     }
+
+    /**
+     * @return A rough estimate of the memory used by the cells of this field, in bytes.
+     */
+    public long estimatedStorageBytes()
+    {
+        return field.estimatedBytes();
+    }
+    
+    /**
+     * Build the table of random neighbour orders. The table has its own
+     * fixed seed so that it is the same in every run.
+     * @return PERMUTATION_COUNT permutations of 0..7, stored back to back.
+     */
+    private static byte[] createPermutations()
+    {
+        Random tableRand = new Random(PERMUTATION_COUNT);
+        byte[] permutations = new byte[PERMUTATION_COUNT * 8];
+        for(int p = 0; p < PERMUTATION_COUNT; p++) {
+            int start = p * 8;
+            for(int i = 0; i < 8; i++) {
+                permutations[start + i] = (byte) i;
+            }
+            // Fisher-Yates shuffle of this permutation.
+            for(int i = 7; i > 0; i--) {
+                int j = tableRand.nextInt(i + 1);
+                byte swap = permutations[start + i];
+                permutations[start + i] = permutations[start + j];
+                permutations[start + j] = swap;
+            }
+        }
+        return permutations;
+    }
 }
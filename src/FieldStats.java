@@ -1,29 +1,25 @@
 package src;
-import java.awt.Color;
-import java.util.HashMap;
+import src.animal.FieldObject;
 
 /**
  * This class collects and provides some statistical data on the state 
- * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
+ * of a field. The counts come from the field's Population, which is
+ * kept up to date as animals are born and die, and from the number of
+ * plants, so no query needs to scan the field.
  * 
+ * Run with -Dsrc.checkPopulation=true to recount the whole field on
+ * every query and fail if the counts disagree.
  */
 public class FieldStats
 {
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private HashMap<Class, Counter> counters;
-    // Whether the counters are currently up to date.
-    private boolean countsValid;
+    // Whether every query is checked against a full recount.
+    private static final boolean CHECK_POPULATION = Boolean.getBoolean("src.checkPopulation");
     
      /**
      * Construct a FieldStats object.
      */
     public FieldStats()
     {
-        // Set up a collection for counters for each type of animal that
-        // we might find
-        counters = new HashMap<>();
-        countsValid = true;
     }
 
     /**
@@ -32,96 +28,104 @@ public class FieldStats
      */
     public String getPopulationDetails(Field field)
     {
+        check(field);
+        Population population = field.getPopulation();
         StringBuffer buffer = new StringBuffer();
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
-            buffer.append(info.getName());
+        for(int id = 0; id < Population.speciesCount(); id++) {
+            buffer.append(Population.nameOf(id));
             buffer.append(": ");
-            buffer.append(info.getCount());
+            buffer.append(population.getCount(id));
             buffer.append(' ');
         }
+        buffer.append("Plant");
+        buffer.append(": ");
+        buffer.append(field.getPlantCount());
+        buffer.append(' ');
         return buffer.toString();
     }
-    
-    /**
-     * Invalidate the current set of statistics; reset all 
-     * counts to zero.
-     */
-    public void reset()
-    {
-        countsValid = false;
-        for(Class key : counters.keySet()) {
-            Counter count = counters.get(key);
-            count.reset();
-        }
-    }
 
     /**
-     * Increment the count for one class of animal.
-     * @param animalClass The class of animal to increment.
+     * Determine whether the simulation is still viable.
+     * I.e., should it continue to run.
+     * @return true If there is more than one species alive.
      */
-    public void incrementCount(Class animalClass)
+    public boolean isViable(Field field)
     {
-        Counter count = counters.get(animalClass);
-        if(count == null) {
-            // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(animalClass.getName());
-            counters.put(animalClass, count);
+        check(field);
+        int nonZero = field.getPopulation().getSpeciesAlive();
+        if(field.getPlantCount() > 0) {
+            nonZero++;
         }
-        count.increment();
-    }
-
-    /**
-     * Indicate that an animal count has been completed.
-     */
-    public void countFinished()
-    {
-        countsValid = true;
+        return nonZero > 1;
     }
-
+    
     /**
-     * Determine whether the simulation is still viable.
-     * I.e., should it continue to run.
-     * @return true If there is more than one species alive.
+     * Compare the counts with a full recount of the field when
+     * checking is switched on.
+     * @param field The field to check.
+     * @throws IllegalStateException If the counts disagree.
      */
-    public boolean isViable(Field field)
+    private void check(Field field)
     {
-        // How many counts are non-zero.
-        int nonZero = 0;
-        if(!countsValid) {
-            generateCounts(field);
+        if(!CHECK_POPULATION) {
+            return;
         }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
-            if(info.getCount() > 0) {
-                nonZero++;
+        Counter[] counters = new Counter[Population.MAX_SPECIES];
+        Counter plants = new Counter("Plant");
+        generateCounts(field, counters, plants);
+        Population population = field.getPopulation();
+        for(int id = 0; id < Population.speciesCount(); id++) {
+            int counted = counters[id] == null ? 0 : counters[id].getCount();
+            if(counted != population.getCount(id)) {
+                throw new IllegalStateException(Population.nameOf(id) + ": counted " + counted
+                                                + " but population is " + population.getCount(id));
             }
         }
-        return nonZero > 1;
+        if(plants.getCount() != field.getPlantCount()) {
+            throw new IllegalStateException("Plants: counted " + plants.getCount()
+                                            + " but plant count is " + field.getPlantCount());
+        }
     }
     
     /**
-     * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
+     * Generate counts of the number of animals and plants
+     * by scanning the whole field.
      * @param field The field to generate the stats for.
+     * @param counters Receives a counter for each species found in
+     *                 the field, indexed by its id.
+     * @param plants The counter for the plants.
+     * @throws IllegalStateException If the field holds something other than an animal.
      */
-    private void generateCounts(Field field)
+    private void generateCounts(Field field, Counter[] counters, Counter plants)
     {
-        reset();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
+                if(field.hasPlantAt(row, col)) {
+                    plants.increment();
+                }
                 Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
+                if(animal instanceof FieldObject) {
+                    incrementCount(counters, ((FieldObject) animal).getSpeciesId());
+                }
+                else if(animal != null) {
+                    throw new IllegalStateException("Not in the population: " + animal);
                 }
             }
         }
-        countsValid = true;
+    }
+
+    /**
+     * Increment the count for one species of animal.
+     * @param counters The counters to update.
+     * @param id The id of the species to increment.
+     */
+    private void incrementCount(Counter[] counters, int id)
+    {
+        if(counters[id] == null) {
+            // We do not have a counter for this species yet.
+            // Create one.
+            counters[id] = new Counter(Population.nameOf(id));
+        }
+        counters[id].increment();
     }
 }
@@ -0,0 +1,52 @@
+package src;
+
+/**
+ * The backing store of a Field. A storage holds three layers for every
+ * cell of the grid: the floor type, the animal standing on it and the
+ * density of the plants growing on it (0 for none). Cells can be addressed either by row and column
+ * or by their index (row * width + col).
+ */
+interface FieldStorage
+{
+    Object getFloorType(int row, int col);
+
+    Object getFloorType(int index);
+
+    void setFloorType(int row, int col, Object floorType);
+
+    Object getAnimal(int row, int col);
+
+    Object getAnimal(int index);
+
+    void setAnimal(int row, int col, Object animal);
+
+    byte getPlant(int row, int col);
+
+    byte getPlant(int index);
+
+    void setPlant(int row, int col, byte density);
+
+    void setPlant(int index, byte density);
+
+    /**
+     * Remove every animal and plant, keeping the floor types.
+     */
+    void clearAnimalsAndPlants();
+
+    /**
+     * Remove every floor type.
+     */
+    void clearFloorTypes();
+
+    /**
+     * @return A rough estimate of the heap used by this storage, in bytes.
+     */
+    long estimatedBytes();
+
+    /**
+     * Write any changes through to the file behind this storage, if any.
+     */
+    default void flush()
+    {
+    }
+}
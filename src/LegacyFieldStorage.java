@@ -0,0 +1,101 @@
+package src;
+
+/**
+ * The original layout of the field: an Object[depth][width][3] array
+ * where slot 0 holds the floor type, slot 1 the animal and slot 2 the
+ * plant density of each cell, as a (cached) Byte or null for none.
+ */
+class LegacyFieldStorage implements FieldStorage
+{
+    private static final int FLOOR = 0;
+    private static final int ANIMAL = 1;
+    private static final int PLANT = 2;
+
+    private final int depth, width;
+    private final Object[][][] field;
+
+    LegacyFieldStorage(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        field = new Object[depth][width][3];
+    }
+
+    public Object getFloorType(int row, int col)
+    {
+        return field[row][col][FLOOR];
+    }
+
+    public Object getFloorType(int index)
+    {
+        return field[index / width][index % width][FLOOR];
+    }
+
+    public void setFloorType(int row, int col, Object floorType)
+    {
+        field[row][col][FLOOR] = floorType;
+    }
+
+    public Object getAnimal(int row, int col)
+    {
+        return field[row][col][ANIMAL];
+    }
+
+    public Object getAnimal(int index)
+    {
+        return field[index / width][index % width][ANIMAL];
+    }
+
+    public void setAnimal(int row, int col, Object animal)
+    {
+        field[row][col][ANIMAL] = animal;
+    }
+
+    public byte getPlant(int row, int col)
+    {
+        Object density = field[row][col][PLANT];
+        return density == null ? 0 : (Byte) density;
+    }
+
+    public byte getPlant(int index)
+    {
+        return getPlant(index / width, index % width);
+    }
+
+    public void setPlant(int row, int col, byte density)
+    {
+        field[row][col][PLANT] = density == 0 ? null : Byte.valueOf(density);
+    }
+
+    public void setPlant(int index, byte density)
+    {
+        setPlant(index / width, index % width, density);
+    }
+
+    public void clearAnimalsAndPlants()
+    {
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                field[row][col][ANIMAL] = null;
+                field[row][col][PLANT] = null;
+            }
+        }
+    }
+
+    public void clearFloorTypes()
+    {
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                field[row][col][FLOOR] = null;
+            }
+        }
+    }
+
+    public long estimatedBytes()
+    {
+        // Outer array, one row array per row and one Object[3] per cell
+        // (16 byte header + 3 compressed references, padded to 32 bytes).
+        long rows = 16 + 4L * depth + depth * (16 + 4L * width);
+        return rows + 32L * depth * width;
+    }
+}
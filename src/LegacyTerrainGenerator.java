@@ -0,0 +1,77 @@
+package src;
+
+import java.util.Random;
+
+import src.fieldType.Ground;
+import src.fieldType.Water;
+
+/**
+ * The original terrain: the cells are visited row by row, and each one
+ * is water with a probability that grows with the water already placed
+ * to its left and in the row above, so water forms lakes and rivers.
+ * Each cell depends on the ones before it, so the scan is sequential.
+ */
+public class LegacyTerrainGenerator implements TerrainGenerator
+{
+    public void generate(Field field, Random random)
+    {
+        Water water = new Water();
+        Ground ground = new Ground();
+        for(int row = 0; row < field.getDepth(); row++) {
+            for(int col = 0; col < field.getWidth(); col++) {
+                if(random.nextDouble() <= getWaterProbability(field, row, col)) {
+                    field.setFloorType(water, row, col);
+                }
+                else {
+                    field.setFloorType(ground, row, col);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the surrounding squares with each floor type and gives you the probability of the location given to be water,
+     * more water generates more water.
+     * @param field The field being generated.
+     * @param row the row you want to check
+     * @param col the column you want to check
+     * @return a double between 0 and 1 with the probability of the current square of being water.
+     */
+    private static double getWaterProbability(Field field, int row, int col)
+    {
+        if(row == 0 && col == 0) return 0.01; // We set a low water probability to the top left corner.
+        int waterCount = 0;    // counts the water squares nearby.
+        int groundCount = 0;   // counts the ground squares nearby.
+        if(col > 0) {
+            Object floorTypeObject = field.getFloorTypeAt(row, col - 1);
+            if(floorTypeObject instanceof Water) {
+                waterCount++;
+            } else {
+                groundCount++;
+            }
+        }
+        /*
+         * The first if condition makes sure don't go out of bounds.
+         * if the row is greater than 0, we check the 3 rows. we also
+         * check the columns. Example: If we are in the furtherst
+         * right column, if i = 2, then col + 2 - 1 would've been out of bounds.
+         */
+        for(int i = 0; i < 3; i++) {  //checks from 0 to 2 providing the next 3 horizontal squares.
+            if(row > 0 && col + i - 1 > 0 && col + i - 1 < field.getWidth()) {
+                Object floorTypeObject = field.getFloorTypeAt(row - 1, col + i - 1); //gets floor type for pevious row and column.
+                if(floorTypeObject instanceof Water) {
+                    waterCount++;
+                } else {
+                    groundCount++;
+                }
+            }
+        }
+        /*
+         * Math function to get water prob: For each step there is a 10% chance of a square being water.This prob is increased
+         * by 24% for every other surrounding water square that already exists factored with the number of water squares
+         * around (waterCount).If there are ground squares around, there is a value corresponding to 0.04 factored with
+         * the number of ground squares around (groundCount) which decreases the probability.
+         */
+        return 0.1 + 0.24 * waterCount - 0.04 * groundCount;
+    }
+}
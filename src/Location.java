@@ -1,13 +1,16 @@
 package src;
 /**
  * Represent a location in a rectangular grid.
+ * Locations are immutable. A Field keeps one canonical instance per
+ * cell (see Field.getLocation), so locations obtained from the same
+ * field can also be compared by identity.
  * 
  */
-public class Location
+public final class Location
 {
     // Row and column positions.
-    private int row;
-    private int col;
+    private final int row;
+    private final int col;
 
     /**
      * Represent a row and column.
@@ -2,13 +2,28 @@ package src;
 
 
 /*
- * A main method for running a long simulation
+ * A main method for running a long simulation.
+ * 
+ * Run with --headless to simulate without a window, e.g. on a server;
+ * the population is then printed once per simulated day.
  */
 
 public class Main {
 
 	public static void main(String[] args) {
-		Simulator simulator = new Simulator();
+		boolean headless = args.length > 0 && args[0].equals("--headless");
+		Simulator simulator;
+		if(headless) {
+			simulator = Simulator.headless(80, 120);
+			simulator.addObserver(new SimulationObserver() {
+				public void simulationUpdated(int step, Field field) {
+					System.out.println("Step: " + step + " " + simulator.getPopulationDetails());
+				}
+			}, Field.FULL_DAY_LENGTH, 0);
+		}
+		else {
+			simulator = new Simulator();
+		}
 		simulator.runLongSimulation();
 
 	}
@@ -0,0 +1,124 @@
+package src;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records which cells of a field hold a male, one bitmap per species, so
+ * that a female can tell whether a male of her species is next to her
+ * with a few bit operations instead of looking at her eight neighbours.
+ *
+ * Each row of a bitmap has a spare bit on either side that is never set,
+ * so the three cells of a row around any column are three consecutive
+ * bits. A bitmap takes one bit per cell and is only created once a male
+ * of its species has been placed.
+ *
+ * Bits are set and cleared atomically, as animals on several threads may
+ * move in cells that share a word (see TiledStepEngine). A cell's bits
+ * are only read by animals next to it, which never act at the same time
+ * as the animals that change them.
+ */
+class MaleIndex
+{
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int depth, width;
+    // The bits of a row, its spare bits included.
+    private final int stride;
+    // The bitmap of each species, or null while it has had no males.
+    private final AtomicReferenceArray<long[]> males = new AtomicReferenceArray<>(Population.MAX_SPECIES);
+
+    /**
+     * Create an empty index for a field of the given size.
+     */
+    MaleIndex(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.stride = width + 2;
+    }
+
+    /**
+     * Record that a male of the given species is in the cell, or that
+     * it has left.
+     * @param speciesId The id of the species, see Population.
+     * @param index The index of the cell.
+     * @param male true if the male arrived, false if it left.
+     */
+    void set(int speciesId, int index, boolean male)
+    {
+        long[] words = male ? bitmap(speciesId) : males.get(speciesId);
+        if(words == null) {
+            return;
+        }
+        int bit = (index / width) * stride + index % width + 1;
+        long mask = 1L << bit;
+        if(male) {
+            WORDS.getAndBitwiseOr(words, bit >>> 6, mask);
+        }
+        else {
+            WORDS.getAndBitwiseAnd(words, bit >>> 6, ~mask);
+        }
+    }
+
+    /**
+     * Tell whether one of the eight cells around the given one holds a
+     * male of the species. The cell itself is included, so this only
+     * means something when it does not hold a male of the species.
+     * @param speciesId The id of the species, see Population.
+     * @param index The index of the cell.
+     * @return true if there is a male of the species next to the cell.
+     */
+    boolean hasMaleAround(int speciesId, int index)
+    {
+        long[] words = males.get(speciesId);
+        if(words == null) {
+            return false;
+        }
+        int row = index / width;
+        // The first of the three bits around the cell, on its own row.
+        int bit = row * stride + index % width;
+        return (row > 0 && threeBits(words, bit - stride) != 0)
+            || threeBits(words, bit) != 0
+            || (row < depth - 1 && threeBits(words, bit + stride) != 0);
+    }
+
+    /**
+     * Forget every male.
+     */
+    void clear()
+    {
+        for(int id = 0; id < males.length(); id++) {
+            males.set(id, null);
+        }
+    }
+
+    /**
+     * @return The three bits starting at the given one, as the lowest bits of a long.
+     */
+    private static long threeBits(long[] words, int bit)
+    {
+        int word = bit >>> 6;
+        int shift = bit & 63;
+        long bits = words[word] >>> shift;
+        if(shift > 61) {
+            bits |= words[word + 1] << (64 - shift);
+        }
+        return bits & 7;
+    }
+
+    /**
+     * @return The bitmap of the species, created if it does not exist yet.
+     */
+    private long[] bitmap(int speciesId)
+    {
+        long[] words = males.get(speciesId);
+        if(words == null) {
+            // One more word than needed, so that reading past the last bit is safe.
+            males.compareAndSet(speciesId, null, new long[(depth * stride + 63) / 64 + 1]);
+            words = males.get(speciesId);
+        }
+        return words;
+    }
+}
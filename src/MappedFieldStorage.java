@@ -0,0 +1,391 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A layout of the field that lives in a memory-mapped world file instead
+ * of on the heap, for fields too large to fit in memory. The operating
+ * system pages cells in and out as they are used, a world file that
+ * already exists is mapped as it is rather than loaded, and other
+ * processes can map the same file read-only to look at a running
+ * simulation.
+ *
+ * The file starts with a header of HEADER_SIZE bytes: the magic number,
+ * the version, the depth, the width and the floor type palette (the
+ * number of entries, then each class name as a length and UTF-8 bytes).
+ * It is followed by three layers indexed by row * width + col: the
+ * floor type palette code (one byte per cell, 0 for none), the plant
+ * density (one byte per cell) and the occupant (one int per cell, 0 for
+ * none, starting on a multiple of four).
+ *
+ * Animals are Java objects and cannot live in a file, so the occupant
+ * layer holds an entity id: an index into a table on the heap that is
+ * only as large as the number of animals. Ids are freed when an animal
+ * leaves its cell and reused. The animals of a previous run are gone
+ * when a file is mapped again, so the occupant layer is cleared then.
+ *
+ * The file is mapped in chunks because a single mapping is limited to
+ * 2GB. Floor types are matched by class, so every Water in the field
+ * is the same Water object.
+ *
+ * Only the layers live in the file. Field still indexes cells with an
+ * int, so a world holds at most MAX_CELLS cells, and the indexes Field
+ * keeps beside the layers stay on the heap at one bit per cell each:
+ * the water proximity index (two bitmaps), the male index (one bitmap
+ * per species with males) and, while a view follows the field, the
+ * changed cells. For the largest world that is a few hundred MB each,
+ * against about 13GB of file.
+ */
+class MappedFieldStorage implements FieldStorage
+{
+    // "SIMW", the first bytes of every world file.
+    private static final int MAGIC = 0x53494d57;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4096;
+    // The most cells a world can have, as cells are indexed with an int.
+    static final long MAX_CELLS = Integer.MAX_VALUE;
+    // Palette code for a cell without a floor type.
+    private static final byte NO_FLOOR = 0;
+    // Each chunk maps 1GB, a multiple of four so no int straddles two chunks.
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final int depth, width;
+    private final long cells;
+    private final boolean readOnly;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] chunks;
+    // Where each layer starts in the file.
+    private final long terrainStart, plantStart, occupantStart;
+    // The distinct floor type classes in use and one object of each.
+    private Object[] palette;
+    private int paletteSize;
+    // The animal behind each entity id, and the ids that are free again.
+    private Object[] entities;
+    private int[] freeIds;
+    private int freeCount;
+    private int nextId;
+
+    /**
+     * Map a world file, creating it if it does not exist.
+     * @param file The world file.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param readOnly Whether to map an existing file for reading only.
+     * @throws IOException If the file cannot be mapped or is for another size.
+     * @throws IllegalArgumentException If the field has more than MAX_CELLS cells.
+     */
+    MappedFieldStorage(Path file, int depth, int width, boolean readOnly) throws IOException
+    {
+        if(depth <= 0 || width <= 0 || (long) depth * width > MAX_CELLS) {
+            throw new IllegalArgumentException("A world must have between 1 and " + MAX_CELLS
+                                               + " cells, not " + depth + "x" + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.readOnly = readOnly;
+        cells = (long) depth * width;
+        terrainStart = HEADER_SIZE;
+        plantStart = terrainStart + cells;
+        occupantStart = (plantStart + cells + 3) & ~3L;
+        long size = occupantStart + 4 * cells;
+
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+        try(FileChannel channel = readOnly
+                ? FileChannel.open(file, StandardOpenOption.READ)
+                : FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            boolean existing = channel.size() > 0;
+            if(existing && channel.size() != size) {
+                throw new IOException(file + " is not a " + depth + "x" + width + " world");
+            }
+            header = channel.map(mode, 0, HEADER_SIZE);
+            chunks = new MappedByteBuffer[(int) ((size - 1) >>> CHUNK_SHIFT) + 1];
+            for(int chunk = 0; chunk < chunks.length; chunk++) {
+                long start = (long) chunk << CHUNK_SHIFT;
+                chunks[chunk] = channel.map(mode, start, Math.min(size - start, 1L << CHUNK_SHIFT));
+            }
+        }
+        palette = new Object[4];
+        paletteSize = 1;
+        entities = new Object[64];
+        freeIds = new int[64];
+        nextId = 1;
+        if(header.getInt(0) == MAGIC) {
+            readHeader();
+            if(!readOnly) {
+                clearOccupants();
+            }
+        }
+        else if(readOnly) {
+            throw new IOException(file + " is not a world file");
+        }
+        else {
+            writeHeader();
+        }
+    }
+
+    /**
+     * Read the size of a world file from its header.
+     * @param file The world file.
+     * @return The depth and the width.
+     * @throws IOException If the file is not a world file.
+     */
+    static int[] readSize(Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(16);
+            while(start.hasRemaining() && channel.read(start) >= 0) {
+            }
+            if(start.position() < 16 || start.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a world file");
+            }
+            return new int[] { start.getInt(8), start.getInt(12) };
+        }
+    }
+
+    public Object getFloorType(int row, int col)
+    {
+        return palette[getByte(terrainStart + row * (long) width + col)];
+    }
+
+    public Object getFloorType(int index)
+    {
+        return palette[getByte(terrainStart + index)];
+    }
+
+    public void setFloorType(int row, int col, Object floorType)
+    {
+        putByte(terrainStart + row * (long) width + col, codeOf(floorType));
+    }
+
+    public Object getAnimal(int row, int col)
+    {
+        return getAnimal(row * width + col);
+    }
+
+    public Object getAnimal(int index)
+    {
+        int id = getInt(occupantStart + 4L * index);
+        // A read-only view has no entity table; it sees no animal objects.
+        return id == 0 || id >= entities.length ? null : entities[id];
+    }
+
+    public void setAnimal(int row, int col, Object animal)
+    {
+        long position = occupantStart + 4 * (row * (long) width + col);
+        int old = getInt(position);
+        if(old != 0) {
+            release(old);
+        }
+        putInt(position, animal == null ? 0 : acquire(animal));
+    }
+
+    public byte getPlant(int row, int col)
+    {
+        return getByte(plantStart + row * (long) width + col);
+    }
+
+    public byte getPlant(int index)
+    {
+        return getByte(plantStart + index);
+    }
+
+    public void setPlant(int row, int col, byte density)
+    {
+        putByte(plantStart + row * (long) width + col, density);
+    }
+
+    public void setPlant(int index, byte density)
+    {
+        putByte(plantStart + index, density);
+    }
+
+    public void clearAnimalsAndPlants()
+    {
+        clearOccupants();
+        fill(plantStart, cells);
+    }
+
+    public void clearFloorTypes()
+    {
+        fill(terrainStart, cells);
+        Arrays.fill(palette, null);
+        paletteSize = 1;
+        writeHeader();
+    }
+
+    public long estimatedBytes()
+    {
+        // Of the layers, only the entity table is on the heap. Field's
+        // bitmaps of one bit per cell are not counted here.
+        return 16 + 4L * entities.length + 4L * freeIds.length;
+    }
+
+    public void flush()
+    {
+        if(readOnly) {
+            return;
+        }
+        header.force();
+        for(MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Give an animal an entity id.
+     * @param animal The animal entering a cell.
+     * @return Its id.
+     */
+    private synchronized int acquire(Object animal)
+    {
+        int id;
+        if(freeCount > 0) {
+            id = freeIds[--freeCount];
+        }
+        else {
+            id = nextId++;
+            if(id == entities.length) {
+                entities = Arrays.copyOf(entities, entities.length * 2);
+            }
+        }
+        entities[id] = animal;
+        return id;
+    }
+
+    /**
+     * Free the entity id of an animal leaving its cell.
+     * @param id The id.
+     */
+    private synchronized void release(int id)
+    {
+        entities[id] = null;
+        if(freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    private synchronized void clearOccupants()
+    {
+        fill(occupantStart, 4 * cells);
+        Arrays.fill(entities, null);
+        freeCount = 0;
+        nextId = 1;
+    }
+
+    /**
+     * Find the palette code of a floor type, adding its class to the
+     * palette if it has not been seen before.
+     * @param floorType The floor type object, may be null.
+     * @return The code to store in the terrain layer.
+     */
+    private byte codeOf(Object floorType)
+    {
+        if(floorType == null) {
+            return NO_FLOOR;
+        }
+        for(int code = 1; code < paletteSize; code++) {
+            if(palette[code].getClass() == floorType.getClass()) {
+                return (byte) code;
+            }
+        }
+        if(paletteSize == Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct floor types in one field.");
+        }
+        if(paletteSize == palette.length) {
+            palette = Arrays.copyOf(palette, palette.length * 2);
+        }
+        palette[paletteSize] = floorType;
+        byte code = (byte) paletteSize++;
+        writeHeader();
+        return code;
+    }
+
+    private void writeHeader()
+    {
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, depth);
+        header.putInt(12, width);
+        header.putInt(16, paletteSize);
+        int position = 20;
+        for(int code = 1; code < paletteSize; code++) {
+            byte[] name = palette[code].getClass().getName().getBytes(StandardCharsets.UTF_8);
+            if(position + 2 + name.length > HEADER_SIZE) {
+                throw new IllegalStateException("The floor type palette does not fit in the header.");
+            }
+            header.putShort(position, (short) name.length);
+            header.put(position + 2, name);
+            position += 2 + name.length;
+        }
+    }
+
+    private void readHeader() throws IOException
+    {
+        if(header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported world file version " + header.getInt(4));
+        }
+        if(header.getInt(8) != depth || header.getInt(12) != width) {
+            throw new IOException("The world file is for a " + header.getInt(8) + "x" + header.getInt(12) + " field");
+        }
+        paletteSize = header.getInt(16);
+        palette = new Object[Math.max(4, paletteSize)];
+        int position = 20;
+        for(int code = 1; code < paletteSize; code++) {
+            byte[] name = new byte[header.getShort(position)];
+            header.get(position + 2, name);
+            position += 2 + name.length;
+            try {
+                palette[code] = Class.forName(new String(name, StandardCharsets.UTF_8))
+                                     .getDeclaredConstructor().newInstance();
+            }
+            catch(ReflectiveOperationException e) {
+                throw new IOException("Unknown floor type in the world file", e);
+            }
+        }
+    }
+
+    private byte getByte(long position)
+    {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+    }
+
+    private void putByte(long position, byte value)
+    {
+        chunks[(int) (position >>> CHUNK_SHIFT)].put((int) (position & CHUNK_MASK), value);
+    }
+
+    private int getInt(long position)
+    {
+        return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+    }
+
+    private void putInt(long position, int value)
+    {
+        chunks[(int) (position >>> CHUNK_SHIFT)].putInt((int) (position & CHUNK_MASK), value);
+    }
+
+    /**
+     * Set a range of the file to zero.
+     */
+    private void fill(long start, long length)
+    {
+        byte[] zeros = new byte[1 << 16];
+        long end = start + length;
+        for(long position = start; position < end; ) {
+            MappedByteBuffer chunk = chunks[(int) (position >>> CHUNK_SHIFT)];
+            int offset = (int) (position & CHUNK_MASK);
+            int count = (int) Math.min(Math.min(zeros.length, end - position), chunk.capacity() - offset);
+            chunk.put(offset, zeros, 0, count);
+            position += count;
+        }
+    }
+}
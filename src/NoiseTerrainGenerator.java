@@ -0,0 +1,148 @@
+package src;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import src.fieldType.Ground;
+import src.fieldType.Water;
+
+/**
+ * Terrain from coherent noise: a height is computed for every cell from
+ * a few octaves of value noise, and the cells below the water level are
+ * water, so water forms lakes of about the feature size with smaller
+ * bays and islands around them.
+ *
+ * The noise of a cell only depends on a seed drawn once from the
+ * simulation's generator and on the cell's coordinates (the random values
+ * at the corners of the noise lattice come from RandomStream.seedFor), so
+ * the rows are computed in parallel and the terrain is the same whatever
+ * the number of threads. Only placing the floor types is sequential.
+ */
+public class NoiseTerrainGenerator implements TerrainGenerator
+{
+    // Gives as much water as the LegacyTerrainGenerator on average, on large fields.
+    public static final double DEFAULT_WATER_LEVEL = 0.282;
+    public static final int DEFAULT_FEATURE_SIZE = 16;
+    private static final int OCTAVES = 3;
+
+    private final double waterLevel;
+    private final int featureSize;
+
+    /**
+     * Create a generator with the default water level and feature size.
+     */
+    public NoiseTerrainGenerator()
+    {
+        this(DEFAULT_WATER_LEVEL, DEFAULT_FEATURE_SIZE);
+    }
+
+    /**
+     * @param waterLevel The height, between 0 and 1, below which a cell is
+     *                   water. Higher levels give more water.
+     * @param featureSize The spacing of the coarsest lattice in cells,
+     *                    roughly the size of the largest lakes.
+     */
+    public NoiseTerrainGenerator(double waterLevel, int featureSize)
+    {
+        if(waterLevel < 0 || waterLevel > 1) {
+            throw new IllegalArgumentException("The water level must be between 0 and 1: " + waterLevel);
+        }
+        if(featureSize < 1) {
+            throw new IllegalArgumentException("The feature size must be at least 1: " + featureSize);
+        }
+        this.waterLevel = waterLevel;
+        this.featureSize = featureSize;
+    }
+
+    public void generate(Field field, Random random)
+    {
+        long seed = random.nextLong();
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        boolean[] isWater = new boolean[depth * width];
+        IntStream.range(0, depth).parallel().forEach(row -> {
+            double[] heights = new double[width];
+            heights(seed, row, heights);
+            for(int col = 0; col < width; col++) {
+                isWater[row * width + col] = heights[col] < waterLevel;
+            }
+        });
+
+        Water water = new Water();
+        Ground ground = new Ground();
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                field.setFloorType(isWater[row * width + col] ? water : ground, row, col);
+            }
+        }
+    }
+
+    /**
+     * Compute the heights of the cells of a row, between 0 and 1: the
+     * octaves of value noise, each at half the spacing and half the
+     * weight of the one before. The noise of an octave blends the random
+     * values of the four lattice points around a cell smoothly, by the
+     * cell's position between them; the lattice points of the row are
+     * drawn once for all its cells.
+     * @param heights Receives the height of each cell.
+     */
+    private void heights(long seed, int row, double[] heights)
+    {
+        int width = heights.length;
+        Arrays.fill(heights, 0);
+        double weight = 1;
+        double totalWeight = 0;
+        int spacing = featureSize;
+        for(int octave = 0; octave < OCTAVES; octave++) {
+            int latticeRow = row / spacing;
+            double y = smooth((row % spacing + 0.5) / spacing);
+            int points = (width - 1) / spacing + 2;
+            double[] above = new double[points];
+            double[] below = new double[points];
+            for(int point = 0; point < points; point++) {
+                above[point] = lattice(seed + octave, latticeRow, point);
+                below[point] = lattice(seed + octave, latticeRow + 1, point);
+            }
+            double[] xs = new double[spacing];
+            for(int offset = 0; offset < spacing; offset++) {
+                xs[offset] = smooth((offset + 0.5) / spacing);
+            }
+            // Lattice cell by lattice cell, so that no cell needs a division.
+            for(int point = 0, col = 0; col < width; point++) {
+                for(int offset = 0; offset < spacing && col < width; offset++, col++) {
+                    double top = lerp(xs[offset], above[point], above[point + 1]);
+                    double bottom = lerp(xs[offset], below[point], below[point + 1]);
+                    heights[col] += weight * lerp(y, top, bottom);
+                }
+            }
+            totalWeight += weight;
+            weight /= 2;
+            spacing = Math.max(1, spacing / 2);
+        }
+        for(int col = 0; col < width; col++) {
+            heights[col] /= totalWeight;
+        }
+    }
+
+    /**
+     * @return The random value, between 0 and 1, of a lattice point.
+     */
+    private static double lattice(long seed, int row, int col)
+    {
+        return (RandomStream.seedFor(seed, row, col) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @return t eased in and out, so that the noise has no creases at the lattice lines.
+     */
+    private static double smooth(double t)
+    {
+        return t * t * (3 - 2 * t);
+    }
+
+    private static double lerp(double t, double a, double b)
+    {
+        return a + t * (b - a);
+    }
+}
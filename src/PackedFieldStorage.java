@@ -0,0 +1,136 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * A compact layout of the field. Each layer is a single flat array
+ * indexed by row * width + col, so a lookup is one bounds check and one
+ * load instead of three levels of array indirection.
+ * 
+ * Floor types are stored as one byte per cell. Since a field only ever
+ * contains a handful of distinct floor type objects, the byte is an
+ * index into a small palette of those objects. Plant densities are one
+ * byte per cell. Animals stay references because callers need the
+ * object itself back, but they live in a flat array rather than in a
+ * small array per cell.
+ */
+class PackedFieldStorage implements FieldStorage
+{
+    // Palette code for a cell without a floor type.
+    private static final byte NO_FLOOR = 0;
+
+    private final int depth, width;
+    private final byte[] terrain;
+    private final Object[] animals;
+    private final byte[] plants;
+    // The distinct floor type objects in use. Index 0 is unused.
+    private Object[] palette;
+    private int paletteSize;
+
+    PackedFieldStorage(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        int cells = depth * width;
+        terrain = new byte[cells];
+        animals = new Object[cells];
+        plants = new byte[cells];
+        palette = new Object[4];
+        paletteSize = 1;
+    }
+
+    public Object getFloorType(int row, int col)
+    {
+        return palette[terrain[row * width + col]];
+    }
+
+    public Object getFloorType(int index)
+    {
+        return palette[terrain[index]];
+    }
+
+    public void setFloorType(int row, int col, Object floorType)
+    {
+        terrain[row * width + col] = codeOf(floorType);
+    }
+
+    public Object getAnimal(int row, int col)
+    {
+        return animals[row * width + col];
+    }
+
+    public Object getAnimal(int index)
+    {
+        return animals[index];
+    }
+
+    public void setAnimal(int row, int col, Object animal)
+    {
+        animals[row * width + col] = animal;
+    }
+
+    public byte getPlant(int row, int col)
+    {
+        return plants[row * width + col];
+    }
+
+    public byte getPlant(int index)
+    {
+        return plants[index];
+    }
+
+    public void setPlant(int row, int col, byte density)
+    {
+        plants[row * width + col] = density;
+    }
+
+    public void setPlant(int index, byte density)
+    {
+        plants[index] = density;
+    }
+
+    public void clearAnimalsAndPlants()
+    {
+        Arrays.fill(animals, null);
+        Arrays.fill(plants, (byte) 0);
+    }
+
+    public void clearFloorTypes()
+    {
+        Arrays.fill(terrain, NO_FLOOR);
+        Arrays.fill(palette, null);
+        paletteSize = 1;
+    }
+
+    public long estimatedBytes()
+    {
+        long cells = (long) depth * width;
+        return 3 * 16 + cells + 4 * cells + cells;
+    }
+
+    /**
+     * Find the palette code of a floor type, adding it to the palette
+     * if it has not been seen before.
+     * @param floorType The floor type object, may be null.
+     * @return The code to store in the terrain layer.
+     */
+    private byte codeOf(Object floorType)
+    {
+        if(floorType == null) {
+            return NO_FLOOR;
+        }
+        for(int code = 1; code < paletteSize; code++) {
+            if(palette[code] == floorType) {
+                return (byte) code;
+            }
+        }
+        if(paletteSize == Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct floor types in one field.");
+        }
+        if(paletteSize == palette.length) {
+            palette = Arrays.copyOf(palette, palette.length * 2);
+        }
+        palette[paletteSize] = floorType;
+        return (byte) paletteSize++;
+    }
+}
@@ -0,0 +1,132 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import src.animal.Species;
+import src.animal.plants.Plant;
+
+/**
+ * The tuning constants of the simulation that can be changed for a run
+ * (see SimulationParameters). Each parameter has a key, used in sweep
+ * specifications and result files, and the value the simulation used
+ * to have built in.
+ *
+ * Besides the parameters of the field and the plants below, every
+ * species in the definitions (see Species) has four parameters, made
+ * when the definitions are read: its breeding probability, maximum
+ * litter size, infection probability and creation probability, with
+ * keys such as lionBreedingProbability. They only override the value
+ * given in the definition, so they have no value of their own: their
+ * default is NaN, which means "not set".
+ */
+public final class Parameter
+{
+    // Every parameter, in the order they were made, and by key.
+    private static final List<Parameter> all = new ArrayList<>();
+    private static final Map<String, Parameter> byKey = new LinkedHashMap<>();
+
+    public static final Parameter RAINING_PROBABILITY = define("rainingProbability", 0.2);
+    public static final Parameter PLANT_BREEDING_PROBABILITY = define("plantBreedingProbability", Plant.BREEDING_PROBABILITY);
+    public static final Parameter PLANT_WATER_BONUS = define("plantWaterBonus", Plant.WATER_BONUS);
+    public static final Parameter PLANT_RAIN_BONUS = define("plantRainBonus", Plant.RAIN_BONUS);
+    public static final Parameter PLANT_MAX_LITTER_SIZE = define("plantMaxLitterSize", Plant.MAX_LITTER_SIZE);
+
+    private final String key;
+    private final double defaultValue;
+    // The position of the parameter in values(), see SimulationParameters.
+    private final int index;
+
+    private Parameter(String key, double defaultValue, int index)
+    {
+        this.key = key;
+        this.defaultValue = defaultValue;
+        this.index = index;
+    }
+
+    private static synchronized Parameter define(String key, double defaultValue)
+    {
+        if(byKey.containsKey(key)) {
+            throw new IllegalStateException("The parameter " + key + " is defined twice");
+        }
+        Parameter parameter = new Parameter(key, defaultValue, all.size());
+        all.add(parameter);
+        byKey.put(key, parameter);
+        return parameter;
+    }
+
+    /**
+     * Make the parameter that overrides a tunable value of a species,
+     * e.g. lionBreedingProbability for the BreedingProbability of Lion.
+     * Called by Species as it reads the definitions.
+     * @param species The name of the species, e.g. Lion.
+     * @param suffix The name of the value, e.g. BreedingProbability.
+     * @return The parameter, with no value of its own.
+     */
+    public static Parameter ofSpecies(String species, String suffix)
+    {
+        return define(Character.toLowerCase(species.charAt(0)) + species.substring(1) + suffix, Double.NaN);
+    }
+
+    /**
+     * @return The value the simulation uses unless told otherwise, or
+     *         NaN for a parameter of a species.
+     */
+    public double getDefault()
+    {
+        return defaultValue;
+    }
+
+    /**
+     * @return The key of the parameter, e.g. lionBreedingProbability.
+     */
+    public String getKey()
+    {
+        return key;
+    }
+
+    /**
+     * @return The position of the parameter in values().
+     */
+    int index()
+    {
+        return index;
+    }
+
+    /**
+     * @return Every parameter, those of the species included.
+     */
+    public static Parameter[] values()
+    {
+        Species.ids();
+        synchronized(Parameter.class) {
+            return all.toArray(new Parameter[0]);
+        }
+    }
+
+    /**
+     * Find a parameter by its key.
+     * @param key The key.
+     * @return The parameter.
+     * @throws IllegalArgumentException If there is no parameter with the key.
+     */
+    public static Parameter forKey(String key)
+    {
+        Species.ids();
+        Parameter parameter;
+        synchronized(Parameter.class) {
+            parameter = byKey.get(key);
+        }
+        if(parameter == null) {
+            throw new IllegalArgumentException("Unknown parameter " + key);
+        }
+        return parameter;
+    }
+
+    public String toString()
+    {
+        return key;
+    }
+}
@@ -0,0 +1,138 @@
+package src;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import src.animal.plants.Plant;
+
+/**
+ * The vegetation of a field. Instead of one Plant object per cell, each
+ * cell of the field storage holds a plant density (0 for bare ground)
+ * and the whole layer grows in a single pass per step, following the
+ * rules in Plant. Herbivores eat by clearing a cell.
+ */
+class PlantLayer
+{
+    // Density of a cell with a plant that can spread.
+    static final byte GROWN = 1;
+    // Density of a cell that was seeded during the current growth pass.
+    // Seedlings occupy their cell but only spread from the next step on.
+    private static final byte SEEDLING = 2;
+
+    private final FieldStorage storage;
+    private final int cells;
+    // Buffer for the free cells around a spreading plant.
+    private final int[] free;
+    // The number of cells with plants. Atomic because animals acting
+    // on different threads may eat at the same time.
+    private final AtomicInteger count;
+
+    PlantLayer(FieldStorage storage, int depth, int width)
+    {
+        this.storage = storage;
+        cells = depth * width;
+        free = new int[8];
+        count = new AtomicInteger();
+    }
+
+    boolean has(int index)
+    {
+        return storage.getPlant(index) != 0;
+    }
+
+    /**
+     * Put a plant in a cell, if there is none there yet.
+     */
+    void place(int index)
+    {
+        if(storage.getPlant(index) == 0) {
+            storage.setPlant(index, GROWN);
+            count.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove the plant from a cell.
+     * @return true if there was a plant to remove.
+     */
+    boolean remove(int index)
+    {
+        if(storage.getPlant(index) == 0) {
+            return false;
+        }
+        storage.setPlant(index, (byte) 0);
+        count.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * Forget the plant count; the storage itself is cleared by the field.
+     */
+    void cleared()
+    {
+        count.set(0);
+    }
+
+    /**
+     * Count the plants again, after the storage was filled from elsewhere.
+     */
+    void recount()
+    {
+        int plants = 0;
+        for(int index = 0; index < cells; index++) {
+            if(storage.getPlant(index) != 0) {
+                plants++;
+            }
+        }
+        count.set(plants);
+    }
+
+    int getCount()
+    {
+        return count.get();
+    }
+
+    /**
+     * Let every grown plant try to spread to the plant free ground cells
+     * around it, with the probabilities of Plant.breedingProbability.
+     * @param field The field the layer belongs to.
+     * @param rand The random generator to draw from.
+     */
+    void grow(Field field, Random rand)
+    {
+        SimulationParameters parameters = field.getParameters();
+        double dryProbability = Plant.breedingProbability(parameters, false, field.isRaining());
+        double wetProbability = Plant.breedingProbability(parameters, true, field.isRaining());
+        int maxLitterSize = parameters.getInt(Parameter.PLANT_MAX_LITTER_SIZE);
+        int width = field.getWidth();
+        for(int index = 0; index < cells; index++) {
+            if(storage.getPlant(index) != GROWN) {
+                continue;
+            }
+            // Draw first and only look for water when the outcome depends on it.
+            double roll = rand.nextDouble();
+            if(roll > wetProbability
+               || (roll > dryProbability && !field.isWaterClose(index / width, index % width))) {
+                continue;
+            }
+            int births = rand.nextInt(maxLitterSize) + 1;
+            int freeCount = field.freeFromPlantGroundAdjacentCells(index, free);
+            int seeded = Math.min(births, freeCount);
+            EventLog log = field.getEventLog();
+            for(int b = 0; b < seeded; b++) {
+                storage.setPlant(free[b], SEEDLING);
+                field.changed(free[b]);
+                if(log != null) {
+                    log.plantGrown(free[b]);
+                }
+            }
+            count.addAndGet(seeded);
+        }
+        // The seedlings of this step become grown plants.
+        for(int index = 0; index < cells; index++) {
+            if(storage.getPlant(index) == SEEDLING) {
+                storage.setPlant(index, GROWN);
+            }
+        }
+    }
+}
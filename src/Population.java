@@ -0,0 +1,119 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Keeps the number of living animals of each species in a field. The
+ * counts are updated when an animal is born and when it dies, so asking
+ * for them never scans the field.
+ * 
+ * Each species gets a small id when it is defined (see Species), and
+ * the counts are kept in an array indexed by that id. The counters are
+ * atomic so that animals may be born and die on several threads.
+ */
+public class Population
+{
+    // The most species a simulation can hold.
+    public static final int MAX_SPECIES = 64;
+    // The names of the species, indexed by their ids.
+    private static final List<String> species = new ArrayList<>();
+
+    // The number of living animals of each species.
+    private final AtomicIntegerArray counts = new AtomicIntegerArray(MAX_SPECIES);
+
+    /**
+     * Return the id of a species, giving it the next free id the first
+     * time it is asked for.
+     * @param name The name of the species, e.g. Lion.
+     * @return The id of the species.
+     */
+    public static int idOf(String name)
+    {
+        synchronized(species) {
+            int id = species.indexOf(name);
+            if(id >= 0) {
+                return id;
+            }
+            if(species.size() == MAX_SPECIES) {
+                throw new IllegalStateException("More than " + MAX_SPECIES + " species");
+            }
+            species.add(name);
+            return species.size() - 1;
+        }
+    }
+
+    /**
+     * Return the name of the species with the given id.
+     * @param id The id of the species.
+     * @return The name of the species, e.g. Lion.
+     */
+    public static String nameOf(int id)
+    {
+        synchronized(species) {
+            return species.get(id);
+        }
+    }
+
+    /**
+     * @return The number of species that have been given an id.
+     */
+    public static int speciesCount()
+    {
+        synchronized(species) {
+            return species.size();
+        }
+    }
+
+    /**
+     * Record that an animal of the given species was born.
+     * @param id The id of the species.
+     */
+    public void born(int id)
+    {
+        counts.incrementAndGet(id);
+    }
+
+    /**
+     * Record that an animal of the given species died.
+     * @param id The id of the species.
+     */
+    public void died(int id)
+    {
+        counts.decrementAndGet(id);
+    }
+
+    /**
+     * @param id The id of the species.
+     * @return The number of living animals of the species.
+     */
+    public int getCount(int id)
+    {
+        return counts.get(id);
+    }
+
+    /**
+     * @return The number of species with at least one living animal.
+     */
+    public int getSpeciesAlive()
+    {
+        int alive = 0;
+        for(int id = speciesCount() - 1; id >= 0; id--) {
+            if(counts.get(id) > 0) {
+                alive++;
+            }
+        }
+        return alive;
+    }
+
+    /**
+     * Forget every animal, e.g. when the field is cleared.
+     */
+    public void clear()
+    {
+        for(int id = 0; id < MAX_SPECIES; id++) {
+            counts.set(id, 0);
+        }
+    }
+}
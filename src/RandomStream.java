@@ -0,0 +1,108 @@
+package src;
+
+import java.util.Random;
+
+/**
+ * A fast, unsynchronised random generator whose whole state is one long.
+ * It uses the SplitMix64 algorithm (the one behind SplittableRandom) but
+ * extends Random, so code written against Random can draw from it.
+ * 
+ * Streams are meant to be reseeded from a key that identifies what is
+ * drawing (see RandomStreams), so that every actor gets its own,
+ * reproducible sequence of numbers. A stream must not be shared between
+ * threads.
+ */
+public class RandomStream extends Random
+{
+    private static final long serialVersionUID = 1L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    /**
+     * Create a stream starting from the given seed.
+     * @param seed The initial state.
+     */
+    public RandomStream(long seed)
+    {
+        super(seed);
+    }
+
+    /**
+     * Start the stream again from the given seed.
+     * @param seed The new state.
+     */
+    public void reseed(long seed)
+    {
+        state = seed;
+    }
+
+    /**
+     * @return The current state, from which the stream can be resumed with reseed.
+     */
+    public long getState()
+    {
+        return state;
+    }
+
+    @Override
+    public void setSeed(long seed)
+    {
+        // Called by the Random constructor as well.
+        state = seed;
+    }
+
+    @Override
+    public long nextLong()
+    {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Draw a normally distributed number by the polar method, like
+     * Random does, but without keeping the second number of each pair
+     * for the next call. Random's cached number would outlive a reseed,
+     * so the next draw would come from the previous key's stream.
+     * @return A number from the standard normal distribution.
+     */
+    @Override
+    public double nextGaussian()
+    {
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while(s >= 1 || s == 0);
+        return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    }
+
+    /**
+     * Derive the seed of an independent stream from a base seed and two keys.
+     * @param seed The base seed.
+     * @param first The first key, e.g. a step number.
+     * @param second The second key, e.g. a cell index.
+     * @return A well mixed seed for that combination.
+     */
+    public static long seedFor(long seed, long first, long second)
+    {
+        return mix64(mix64(seed + first * GOLDEN_GAMMA) + second * GOLDEN_GAMMA);
+    }
+
+    /**
+     * The SplitMix64 finaliser.
+     */
+    private static long mix64(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
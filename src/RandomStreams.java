@@ -0,0 +1,59 @@
+package src;
+
+import java.util.Random;
+
+/**
+ * Deterministic, per-actor randomness for one simulation. Before an
+ * actor acts, the stepping code enters the stream identified by the
+ * current step and the actor's cell; until the next call, everything on
+ * that thread that asks Randomizer.current() for a generator draws from
+ * that stream. The numbers an actor sees therefore only depend on the
+ * seed, the step and its cell - not on which thread runs it or on what
+ * other actors drew before it - so runs are bit-identical whatever the
+ * number of threads.
+ */
+public class RandomStreams
+{
+    // Keys for the draws that do not belong to a cell.
+    public static final long WEATHER = -1;
+    public static final long PLANTS = -2;
+    public static final long TERRAIN = -3;
+    public static final long INFECTION = -4;
+
+    private final long seed;
+
+    /**
+     * @param seed The seed all streams of the simulation are derived from.
+     */
+    public RandomStreams(long seed)
+    {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The seed all streams are derived from.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Make the current thread draw from the stream of the given step and key.
+     * @param step The current step.
+     * @param key What is about to draw: a cell index or one of the keys above.
+     * @return The stream, which Randomizer.current() now also returns.
+     */
+    public Random enter(int step, long key)
+    {
+        return Randomizer.bindStream(RandomStream.seedFor(seed, step, key));
+    }
+
+    /**
+     * Make the current thread go back to the shared generator.
+     */
+    public static void leave()
+    {
+        Randomizer.unbindStream();
+    }
+}
@@ -1,20 +1,31 @@
 package src;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
  * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
  * 'useShared' to false to get different random behaviour every time.
  * 
+ * A thread can also be bound to a RandomStream (see RandomStreams). While it is bound,
+ * current() returns the stream instead of the shared generator, which lets actors
+ * running on several threads draw independent, reproducible numbers.
+ * 
  */
 public class Randomizer
 {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
+    // A shared Random object, if required. A checkpoint restores its state.
+    private static final SharedRandom rand = new SharedRandom(SEED);
     // Determine whether a shared random generator is to be provided.
     private static final boolean useShared = true;
+    // The generator used instead of the shared one when useShared is false.
+    private static Random unshared;
+    // The stream of each thread, created on first use.
+    private static final ThreadLocal<RandomStream> streams = ThreadLocal.withInitial(() -> new RandomStream(SEED));
+    // The stream a thread currently draws from, or null if it uses the shared generator.
+    private static final ThreadLocal<RandomStream> bound = new ThreadLocal<>();
 
     /**
      * Constructor for objects of class Randomizer
@@ -37,6 +48,67 @@ public class Randomizer
         }
     }
     
+    /**
+     * Provide the generator the calling thread should draw from now:
+     * its stream if the thread is bound to one, otherwise the shared
+     * generator.
+     * @return A random object.
+     */
+    public static Random current()
+    {
+        RandomStream stream = bound.get();
+        if(stream != null) {
+            return stream;
+        }
+        if(useShared) {
+            return rand;
+        }
+        if(unshared == null) {
+            unshared = new Random();
+        }
+        return unshared;
+    }
+    
+    /**
+     * Bind the calling thread to its stream, restarted from the given seed.
+     * @param seed The seed for the stream.
+     * @return The thread's stream.
+     */
+    static RandomStream bindStream(long seed)
+    {
+        RandomStream stream = streams.get();
+        stream.reseed(seed);
+        bound.set(stream);
+        return stream;
+    }
+    
+    /**
+     * Let the calling thread draw from the shared generator again.
+     */
+    static void unbindStream()
+    {
+        bound.remove();
+    }
+    
+    /**
+     * @return The state of the shared generator, whatever thread is asking.
+     */
+    static long getSharedState()
+    {
+        return rand.getState();
+    }
+    
+    /**
+     * Put the shared generator back into a state given by getSharedState,
+     * e.g. one saved in a checkpoint. The generator stays the same object,
+     * so every holder of it sees the change.
+     * @param state The state.
+     */
+    static void restoreSharedState(long state)
+    {
+        rand.setState(state);
+    }
+    
     /**
      * Reset the randomization.
      * This will have no effect if randomization is not through
@@ -48,4 +120,55 @@ public class Randomizer
             rand.setSeed(SEED);
         }
     }
+    
+    /**
+     * The shared generator: the same numbers as a java.util.Random with
+     * the same seed, but with a state that can be read and put back,
+     * which Random does not allow.
+     */
+    private static final class SharedRandom extends Random
+    {
+        private static final long serialVersionUID = 1L;
+        private static final long MULTIPLIER = 0x5DEECE66DL;
+        private static final long ADDEND = 0xBL;
+        private static final long MASK = (1L << 48) - 1;
+        
+        // Set by setSeed, which the constructor of Random calls.
+        private AtomicLong state;
+        
+        SharedRandom(long seed)
+        {
+            super(seed);
+        }
+        
+        public synchronized void setSeed(long seed)
+        {
+            super.setSeed(seed);
+            if(state == null) {
+                state = new AtomicLong();
+            }
+            state.set((seed ^ MULTIPLIER) & MASK);
+        }
+        
+        protected int next(int bits)
+        {
+            long current;
+            long next;
+            do {
+                current = state.get();
+                next = (current * MULTIPLIER + ADDEND) & MASK;
+            } while(!state.compareAndSet(current, next));
+            return (int) (next >>> (48 - bits));
+        }
+        
+        long getState()
+        {
+            return state.get();
+        }
+        
+        synchronized void setState(long state)
+        {
+            this.state.set(state & MASK);
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import src.animal.Ecosystem;
+import src.animal.FieldObject;
+
+/**
+ * Lets the actors act one after the other, in list order, on the
+ * calling thread. The dead are dropped and the newborns added after
+ * everyone has acted.
+ * If the field uses per-actor random streams, each actor draws from the
+ * stream of its cell.
+ */
+public class SequentialStepEngine implements StepEngine
+{
+    // Space for the newborn animals of a step.
+    private final List<FieldObject> newActors = new ArrayList<>();
+
+    public void actAll(ActorList actors, Ecosystem ecosystem, int step)
+    {
+        Field field = ecosystem.getField();
+        RandomStreams streams = field.getRandomStreams();
+        for(int i = 0; i < actors.size(); i++) {
+            FieldObject actor = actors.get(i);
+            if(streams != null && actor.getLocation() != null) {
+                streams.enter(step, field.indexOf(actor.getLocation()));
+            }
+            actor.act(newActors, step);
+        }
+        RandomStreams.leave();
+        // Add the newly born animals to the main list, and drop the dead,
+        // some of whom may have been born in this step.
+        actors.addAll(newActors);
+        newActors.clear();
+        actors.removeDead();
+    }
+}
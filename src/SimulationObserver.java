@@ -0,0 +1,27 @@
+package src;
+
+/**
+ * Something that wants to follow a running simulation, such as the
+ * SimulatorView. Observers are registered with Simulator.addObserver,
+ * optionally with a sampling rate, and are called on the simulation
+ * thread.
+ */
+public interface SimulationObserver
+{
+    /**
+     * Called after a reset and after sampled simulation steps.
+     * @param step The step the simulation has reached.
+     * @param field The field of the simulation.
+     */
+    void simulationUpdated(int step, Field field);
+
+    /**
+     * Called when the simulation stops running, e.g. at the end of
+     * Simulator.simulate, whether or not the last step was sampled.
+     * @param step The step the simulation has reached.
+     * @param field The field of the simulation.
+     */
+    default void simulationStopped(int step, Field field)
+    {
+    }
+}
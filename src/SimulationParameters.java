@@ -0,0 +1,92 @@
+package src;
+
+import java.util.Arrays;
+
+/**
+ * The values of the tuning parameters of one simulation. Every Field has
+ * its own set, so simulations running side by side can be tuned
+ * differently. The values are kept in an array indexed by the index
+ * of the parameter, which makes reading one as cheap as reading a field.
+ */
+public class SimulationParameters
+{
+    private final double[] values;
+
+    /**
+     * Create a set of parameters with the default values.
+     */
+    public SimulationParameters()
+    {
+        values = new double[Parameter.values().length];
+        for(Parameter parameter : Parameter.values()) {
+            values[parameter.index()] = parameter.getDefault();
+        }
+    }
+
+    /**
+     * Create a copy of another set of parameters.
+     * @param other The parameters to copy.
+     */
+    public SimulationParameters(SimulationParameters other)
+    {
+        values = other.values.clone();
+    }
+
+    /**
+     * @param parameter The parameter.
+     * @return The value of the parameter.
+     */
+    public double get(Parameter parameter)
+    {
+        return values[parameter.index()];
+    }
+
+    /**
+     * @param parameter A parameter that counts something, e.g. a litter size.
+     * @return The value of the parameter as a whole number.
+     */
+    public int getInt(Parameter parameter)
+    {
+        return (int) values[parameter.index()];
+    }
+
+    /**
+     * Change the value of a parameter.
+     * @param parameter The parameter.
+     * @param value The new value.
+     * @return These parameters, so changes can be chained.
+     */
+    public SimulationParameters set(Parameter parameter, double value)
+    {
+        values[parameter.index()] = value;
+        return this;
+    }
+
+    /**
+     * @return The parameters that differ from their defaults, e.g. "lionBreedingProbability=0.01".
+     */
+    public String toString()
+    {
+        StringBuilder changed = new StringBuilder();
+        for(Parameter parameter : Parameter.values()) {
+            if(Double.compare(get(parameter), parameter.getDefault()) != 0) {
+                if(changed.length() > 0) {
+                    changed.append(' ');
+                }
+                changed.append(parameter.getKey()).append('=').append(get(parameter));
+            }
+        }
+        return changed.toString();
+    }
+
+    public boolean equals(Object other)
+    {
+        return other instanceof SimulationParameters
+               && Arrays.equals(values, ((SimulationParameters) other).values);
+    }
+
+    public int hashCode()
+    {
+        return Arrays.hashCode(values);
+    }
+}
@@ -1,25 +1,23 @@
 package src;
 import java.util.Random;
 
-import src.animal.FieldObject;
-import src.animal.plants.Plant;
-import src.animal.predators.Crocodile;
-import src.animal.predators.Hippo;
-import src.animal.predators.Lion;
-import src.animal.prey.Antelope;
-import src.animal.prey.Giraffe;
-import src.animal.prey.Zebra;
-import src.fieldType.Ground;
+import src.animal.Ecosystem;
+import src.animal.Species;
 import src.fieldType.Water;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.awt.Color;
 
 /**
  * A predator-prey simulator, based on a rectangular field
  * containing plants and different animals.
+ * 
+ * The simulator does not draw anything itself: views and other sinks
+ * subscribe as SimulationObservers. A headless simulator never touches
+ * AWT or Swing, so it can run on machines without a display.
  */
 public class Simulator
 {
@@ -29,34 +27,24 @@ public class Simulator
 	// The default depth of the grid.
 	private static final int DEFAULT_DEPTH = 80;
 
-	//PREDATORS:
-	// The probability that a Lion will be created in any given grid position.
-	private static final double LION_CREATION_PROBABILITY = 0.02;
-	// The probability that a Crocodile will be created in any given grid position.
-	private static final double CROCODILE_CREATION_PROBABILITY = 0.015;
-	// The probability that a Hippo will be created in any given grid position.
-	private static final double HIPPO_CREATION_PROBABILITY = 0.015;
-
-	//PREYS:
-	// The probability that a Antelope will be created in any given grid position.
-	private static final double ANTELOPE_CREATION_PROBABILITY = 0.01;
-	// The probability that a Zebra will be created in any given grid position.
-	private static final double ZEBRA_CREATION_PROBABILITY = 0.01;
-	// The probability that a Giraffe will be created in any given grid position.
-	private static final double GIRAFFE_CREATION_PROBABILITY = 0.01;
-
-
-
-
-
 	// List of animals in the field.
-	private List<FieldObject> animals;
+	private ActorList animals;
 	// The current state of the field.
 	private Field field;
+	// The sick, the dead kept for reuse and the like, see Ecosystem.
+	private Ecosystem ecosystem;
 	// The current step of the simulation.
 	private int step;
-	// A graphical view of the simulation.
-	private SimulatorView view;
+	// The observers following the simulation.
+	private List<Subscription> subscriptions;
+	// Statistics used to decide whether the simulation is still viable.
+	private FieldStats stats;
+	// How much more (or less) likely animals are created than the defaults.
+	private double populationDensity = 1.0;
+	// How the actors are stepped.
+	private StepEngine stepEngine;
+	// How water and ground are laid out.
+	private TerrainGenerator terrainGenerator;
 
 	/**
 	 * Construct a simulation field with default size.
@@ -76,6 +64,41 @@ public class Simulator
 	 * @param width Width of the field. Must be greater than zero.
 	 */
 	public Simulator(int depth, int width)
+	{
+		this(depth, width, Field.Layout.PACKED);
+	}
+
+	/**
+	 * Create a simulation field with the given size and memory layout.
+	 * @param depth Depth of the field. Must be greater than zero.
+	 * @param width Width of the field. Must be greater than zero.
+	 * @param layout How the field stores its cells.
+	 */
+	public Simulator(int depth, int width, Field.Layout layout)
+	{
+		this(depth, width, layout, false);
+	}
+
+	/**
+	 * Create a simulation without a graphical view. No AWT or Swing
+	 * classes are loaded; observers can still be added.
+	 * @param depth Depth of the field. Must be greater than zero.
+	 * @param width Width of the field. Must be greater than zero.
+	 * @return The headless simulator.
+	 */
+	public static Simulator headless(int depth, int width)
+	{
+		return new Simulator(depth, width, Field.Layout.PACKED, true);
+	}
+
+	/**
+	 * Create a simulation field with the given size and memory layout.
+	 * @param depth Depth of the field. Must be greater than zero.
+	 * @param width Width of the field. Must be greater than zero.
+	 * @param layout How the field stores its cells.
+	 * @param headless If true, no graphical view is created.
+	 */
+	public Simulator(int depth, int width, Field.Layout layout, boolean headless)
 	{
 		if(width <= 0 || depth <= 0) {
 			System.out.println("The dimensions must be greater than zero.");
@@ -84,28 +107,251 @@ public class Simulator
 			width = DEFAULT_WIDTH;
 		}
 
-		animals = new ArrayList<>();
-		field = new Field(depth, width);
-
-		// Create a view of the state of each location in the field.
-		view = new SimulatorView(depth, width);
-		Color green = new Color(0, 255, 0);
-		Color crocgreen = new Color(74,67,0);
-		// Assigning colors to the different animals:
-		view.setColor(Antelope.class, Color.ORANGE);
-		view.setColor(Giraffe.class, Color.YELLOW);
-		view.setColor(Zebra.class, Color.BLACK);
-		view.setColor(Lion.class, Color.BLUE);
-		view.setColor(Hippo.class, Color.MAGENTA);
-		view.setColor(Crocodile.class, crocgreen);
-		view.setColor(Ground.class, Color.RED);
-		view.setColor(Water.class, Color.CYAN);
-		view.setColor(Plant.class, green);
+		setUp(new Field(depth, width, layout), headless);
 
 		// Setup a valid starting point.
 		reset();
 	}
 
+	/**
+	 * Create a simulation on an existing field, e.g. one mapped from a
+	 * world file with Field.map. If the field already has its floor
+	 * types, they are kept together with the plants and only the
+	 * animals are created; otherwise the simulation is reset as usual.
+	 * @param field The field to simulate.
+	 * @param headless If true, no graphical view is created.
+	 */
+	public Simulator(Field field, boolean headless)
+	{
+		setUp(field, headless);
+		if(field.getFloorTypeAt(0, 0) != null) {
+			step = 0;
+			populate(false);
+			RandomStreams.leave();
+			notifyObservers(true);
+		}
+		else {
+			reset();
+		}
+	}
+
+	/**
+	 * Initialise the fields of a new simulator.
+	 */
+	private void setUp(Field field, boolean headless)
+	{
+		this.field = field;
+		ecosystem = new Ecosystem(field);
+		animals = new ActorList();
+		stepEngine = new SequentialStepEngine();
+		terrainGenerator = new LegacyTerrainGenerator();
+		subscriptions = new ArrayList<>();
+		stats = new FieldStats();
+
+		if(!headless) {
+			// Create a view of the state of each location in the field.
+			addObserver(new SimulatorView(field.getDepth(), field.getWidth()));
+		}
+	}
+
+	/**
+	 * Choose how the animals are stepped, e.g. a TiledStepEngine to use
+	 * several cores. The default is a SequentialStepEngine.
+	 * @param stepEngine The engine to use from the next step on.
+	 */
+	public void setStepEngine(StepEngine stepEngine)
+	{
+		this.stepEngine = stepEngine;
+	}
+
+	/**
+	 * Let an observer follow every step of the simulation.
+	 * @param observer The observer to add.
+	 */
+	public void addObserver(SimulationObserver observer)
+	{
+		addObserver(observer, 1, 0);
+	}
+
+	/**
+	 * Let an observer follow the simulation at a sampling rate. The
+	 * observer is called once at least the given number of steps and at
+	 * least the given time have passed since it was last called, so
+	 * (100, 0) means every 100 steps and (1, 40) at most 25 times a
+	 * second. Observers are always called after a reset.
+	 * @param observer The observer to add.
+	 * @param everySteps The minimum number of steps between two calls.
+	 * @param everyMillis The minimum number of milliseconds between two calls.
+	 */
+	public void addObserver(SimulationObserver observer, int everySteps, long everyMillis)
+	{
+		subscriptions.add(new Subscription(observer, Math.max(1, everySteps), everyMillis));
+	}
+
+	/**
+	 * Stop an observer from following the simulation.
+	 * @param observer The observer to remove.
+	 */
+	public void removeObserver(SimulationObserver observer)
+	{
+		subscriptions.removeIf(subscription -> subscription.observer == observer);
+	}
+
+	/**
+	 * @return The tuning parameters of the simulation.
+	 */
+	public SimulationParameters getParameters()
+	{
+		return field.getParameters();
+	}
+
+	/**
+	 * Tune the simulation. The creation probabilities take effect on
+	 * the next reset, everything else at once.
+	 * @param parameters The parameters to use.
+	 */
+	public void setParameters(SimulationParameters parameters)
+	{
+		field.setParameters(parameters);
+	}
+
+	/**
+	 * Choose how water and ground are laid out, e.g. a
+	 * NoiseTerrainGenerator. The default is a LegacyTerrainGenerator.
+	 * Takes effect on the next reset.
+	 * @param terrainGenerator The generator to use.
+	 */
+	public void setTerrainGenerator(TerrainGenerator terrainGenerator)
+	{
+		this.terrainGenerator = terrainGenerator;
+	}
+
+	/**
+	 * Scale the probabilities with which animals are created, e.g. 2.0
+	 * for twice as many animals. Takes effect on the next reset.
+	 * @param populationDensity The factor, 1.0 being the default population.
+	 */
+	public void setPopulationDensity(double populationDensity)
+	{
+		this.populationDensity = populationDensity;
+	}
+
+	/**
+	 * Reuse the objects of dead animals for newborns, to spare the
+	 * garbage collector, or not. On by default; runs are the same either
+	 * way.
+	 * @param pooling false to allocate every newborn.
+	 */
+	public void setAnimalPooling(boolean pooling)
+	{
+		ecosystem.getAnimalPool().setEnabled(pooling);
+	}
+
+	/**
+	 * Give every actor its own random stream derived from the seed, so
+	 * that a run only depends on the seed and not on the order in which
+	 * actors act or on the number of threads. Takes effect on the next
+	 * reset.
+	 * @param seed The seed of the simulation.
+	 */
+	public void useRandomStreams(long seed)
+	{
+		field.setRandomStreams(new RandomStreams(seed));
+	}
+
+	/**
+	 * Draw all random numbers from the shared Randomizer again.
+	 */
+	public void useSharedRandom()
+	{
+		field.setRandomStreams(null);
+	}
+
+	/**
+	 * Take an in-memory snapshot of the simulation between two steps.
+	 * @return The checkpoint.
+	 */
+	public Checkpoint captureCheckpoint()
+	{
+		return Checkpoint.capture(step, field, animals);
+	}
+
+	/**
+	 * Write a checkpoint of the simulation to a file.
+	 * @param file The file to write.
+	 * @param compress Whether to compress the file.
+	 * @throws IOException If the file cannot be written.
+	 */
+	public void saveCheckpoint(Path file, boolean compress) throws IOException
+	{
+		captureCheckpoint().write(file, compress);
+	}
+
+	/**
+	 * Continue from a checkpoint file. The field must have the size of
+	 * the checkpoint.
+	 * @param file The checkpoint to restore.
+	 * @throws IOException If the file cannot be read.
+	 */
+	public void restoreCheckpoint(Path file) throws IOException
+	{
+		restoreCheckpoint(Checkpoint.read(file));
+	}
+
+	/**
+	 * Continue from a checkpoint. The simulation then goes on exactly as
+	 * the one the checkpoint was taken from, with its tuning parameters
+	 * and random numbers.
+	 * Events recorded after the checkpoint are dropped from the event log.
+	 * @param checkpoint The checkpoint to restore.
+	 * @throws IOException If the event log cannot be truncated.
+	 */
+	public void restoreCheckpoint(Checkpoint checkpoint) throws IOException
+	{
+		EventLog log = field.getEventLog();
+		field.setEventLog(null);
+		animals.clear();
+		field.clear();
+		ecosystem.clear();
+		checkpoint.restore(ecosystem, animals);
+		step = checkpoint.getStep();
+		field.setEventLog(log);
+		if(log != null) {
+			log.truncateAfter(step);
+		}
+		notifyObservers(true);
+	}
+
+	/**
+	 * Record every change to the field in an event log from the next
+	 * step on. Together with checkpoints (see checkpointEvery), the log
+	 * lets an EventReplayer rebuild the field at any step.
+	 * @param file The log file, appended to if it exists.
+	 * @return The log, to be closed when the simulation is done.
+	 * @throws IOException If the log cannot be opened.
+	 */
+	public EventLog recordEvents(Path file) throws IOException
+	{
+		EventLog log = EventLog.open(file, field.getDepth(), field.getWidth());
+		field.setEventLog(log);
+		return log;
+	}
+
+	/**
+	 * Write a checkpoint to the given directory every so many steps,
+	 * without holding up the simulation while the file is written.
+	 * @param steps The number of steps between two checkpoints.
+	 * @param directory The directory for the checkpoints.
+	 * @param compress Whether to compress the checkpoints.
+	 * @return The writer, to be closed when the simulation is done.
+	 */
+	public CheckpointWriter checkpointEvery(int steps, Path directory, boolean compress)
+	{
+		CheckpointWriter writer = new CheckpointWriter(this, directory, compress);
+		addObserver(writer, steps, 0);
+		return writer;
+	}
+
 	/**
 	 * Run the simulation from its current state for a reasonably long period,
 	 * (4000 steps).
@@ -122,36 +368,85 @@ public class Simulator
 	 */
 	public void simulate(int numSteps)
 	{
-		for(int step = 1; step <= numSteps && view.isViable(field); step++) {
+		for(int step = 1; step <= numSteps && isViable(); step++) {
 			simulateOneStep();
 //			delay(6);   // uncomment this to run more slowly
 		}
+		for(Subscription subscription : subscriptions) {
+			subscription.observer.simulationStopped(step, field);
+		}
 	}
 
 	/**
 	 * Run the simulation from its current state for a single step.
-	 * Iterate over the whole field updating the state of each
-	 * fox and rabbit.
+	 * Grow the plants, then iterate over the animals updating
+	 * the state of each one, and let the sick ones spread their disease.
 	 */
 	public void simulateOneStep()
 	{
 		step++;
+		EventLog log = field.getEventLog();
+		if(log != null) {
+			log.beginStep(step);
+		}
+		enterStream(step, RandomStreams.WEATHER);
 		field.randomizeRain();
-		// Provide space for newborn animals.
-		List<FieldObject> newAnimals = new ArrayList<>();        
-		// Let all rabbits act.
-		for(Iterator<FieldObject> it = animals.iterator(); it.hasNext(); ) {
-			FieldObject fieldObject = it.next();
-			fieldObject.act(newAnimals, step);
-			if(! fieldObject.isAlive()) {
-				it.remove();
-			}
+		enterStream(step, RandomStreams.PLANTS);
+		field.growPlants();
+		RandomStreams.leave();
+		// Let all animals act, dropping the dead and adding the newborns.
+		stepEngine.actAll(animals, ecosystem, step);
+		enterStream(step, RandomStreams.INFECTION);
+		ecosystem.getInfection().spread(field, animals);
+		RandomStreams.leave();
+		// Nothing refers to the animals that died in this step any more.
+		ecosystem.getAnimalPool().recycle();
+		if(log != null) {
+			log.endStep();
 		}
 
-		// Add the newly born foxes and rabbits to the main lists.
-		animals.addAll(newAnimals);
+		notifyObservers(false);
+	}
+
+	/**
+	 * Determine whether the simulation should continue to run.
+	 * @return true If there is more than one species alive.
+	 */
+	public boolean isViable()
+	{
+		return stats.isViable(field);
+	}
+
+	/**
+	 * @return A description of how many of each species there are.
+	 */
+	public String getPopulationDetails()
+	{
+		return stats.getPopulationDetails(field);
+	}
+
+	/**
+	 * @return The field of the simulation.
+	 */
+	public Field getField()
+	{
+		return field;
+	}
+
+	/**
+	 * @return What the animals of the simulation share besides the field.
+	 */
+	public Ecosystem getEcosystem()
+	{
+		return ecosystem;
+	}
 
-		view.showStatus(step, field);
+	/**
+	 * @return The number of animals currently in the simulation.
+	 */
+	public int getAnimalCount()
+	{
+		return animals.size();
 	}
 
 	/**
@@ -159,129 +454,104 @@ public class Simulator
 	 */
 	public void reset()
 	{
+		// The log follows changes from one step to the next, not a new start.
+		EventLog log = field.getEventLog();
+		field.setEventLog(null);
 		step = 0;
 		animals.clear();
 		field.clear();
+		ecosystem.clear();
 		fillFloorTypes();
 		populate();
-		// Show the starting state in the view.
-		view.showStatus(step, field);
+		RandomStreams.leave();
+		field.setEventLog(log);
+		if(log != null) {
+			try {
+				log.truncateAfter(0);
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		// Show the starting state to the observers.
+		notifyObservers(true);
 	}
 
 	/**
-	 * Randomly populate the field with animals.
+	 * Call the observers that are due.
+	 * @param always If true, call every observer whatever its sampling rate.
+	 */
+	private void notifyObservers(boolean always)
+	{
+		if(subscriptions.isEmpty()) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for(Subscription subscription : subscriptions) {
+			if(always || subscription.isDue(step, now)) {
+				subscription.lastStep = step;
+				subscription.lastMillis = now;
+				subscription.observer.simulationUpdated(step, field);
+			}
+		}
+	}
+
+	/**
+	 * Randomly populate the field with animals, and cover
+	 * all the ground with plants.
 	 */
 	private void populate() {
-		Random rand = Randomizer.getRandom();
+		populate(true);
+	}
+
+	/**
+	 * Randomly populate the field with animals.
+	 * @param coverGround Whether to cover all the ground with plants.
+	 */
+	private void populate(boolean coverGround) {
+		SimulationParameters parameters = field.getParameters();
+		int[] species = Species.ids();
 		for (int row = 0; row < field.getDepth(); row++) {
 			for (int col = 0; col < field.getWidth(); col++) {
-				if (field.getFloorTypeAt(row, col) instanceof Water) {
-					if (rand.nextDouble() <= CROCODILE_CREATION_PROBABILITY) {
-						Location location = new Location(row, col);
-						Crocodile crocodile = new Crocodile(true, field, location);
-						animals.add(crocodile);
-
-					} else if (rand.nextDouble() <= HIPPO_CREATION_PROBABILITY) {
-						Location location = new Location(row, col);
-						Hippo hippo = new Hippo(true, field, location);
-						animals.add(hippo);
-
+				Random rand = enterStream(0, row * field.getWidth() + col);
+				boolean isWater = field.getFloorTypeAt(row, col) instanceof Water;
+				// The species of the floor type are tried in turn; at most one is created.
+				for (int id : species) {
+					if (Species.livesInWater(id) == isWater
+							&& rand.nextDouble() <= Species.creationProbability(id, parameters) * populationDensity) {
+						animals.add(Species.create(id, true, ecosystem, field.getLocation(row, col)));
+						break;
 					}
-				} else {
-					if (rand.nextDouble() <= LION_CREATION_PROBABILITY) {
-						Location location = new Location(row, col);
-						Lion lion = new Lion(true, field, location);
-						animals.add(lion);
-					} else if (rand.nextDouble() <= ANTELOPE_CREATION_PROBABILITY) {
-						Location location = new Location(row, col);
-						Antelope antelope = new Antelope(true, field, location);
-						animals.add(antelope);
-					} else if (rand.nextDouble() <= GIRAFFE_CREATION_PROBABILITY) {
-						Location location = new Location(row, col);
-						Giraffe giraffe = new Giraffe(true, field, location);
-						animals.add(giraffe);
-					} else if (rand.nextDouble() <= ZEBRA_CREATION_PROBABILITY) {
-						Location location = new Location(row, col);
-						Zebra zebra = new Zebra(true, field, location);
-						animals.add(zebra);						
-					}
-					Location location = new Location(row, col);
-					Plant plant = new Plant(field, location);
-					animals.add(plant);
+				}
+				if (!isWater && coverGround) {
+					field.placePlant(field.getLocation(row, col));
 				}
 			}
 		}
 	}
 
 	/**
-	 * A method that spawns water or ground in the map,
-	 * depending on which probability is greater. 
-	 * 
+	 * A method that spawns water or ground in the map, with the
+	 * terrain generator of the simulation.
 	 */
 	private void fillFloorTypes() {
-		Random rand = Randomizer.getRandom();
-		Double waterProb;
-		Water water = new Water();
-		Ground ground = new Ground();
-		for(int row = 0; row < field.getDepth(); row++) {
-			for(int col = 0; col < field.getWidth(); col++) {
-				waterProb = this.getWaterProbability(row, col);
-				if(rand.nextDouble() <= waterProb) {
-					Location location = new Location(row, col);
-					field.setFloorType(water, location);
-				}
-				else {
-					Location location = new Location(row, col);
-					field.setFloorType(ground, location);
-				}
-			}
-		}
+		terrainGenerator.generate(field, enterStream(0, RandomStreams.TERRAIN));
 	}
 
-
 	/**
-	 * Checks the surrounding squares with each floor type and gives you the probability of the location given to be water,
-	 * more water generates more water.
-	 * @param row the row you want to check
-	 * @param col the column you want to check
-	 * @return a double between 0 and 1 with the probability of the current square of being water.
+	 * Make the following draws on this thread come from the stream of the
+	 * given step and key, if the simulation uses per-actor streams.
+	 * @param step The current step.
+	 * @param key A cell index or one of the keys of RandomStreams.
+	 * @return The generator to draw from.
 	 */
-	private double getWaterProbability(int row, int col) {
-		if(row == 0 && col == 0) return 0.01; // We set a low water probability to the top left corner.
-		int waterCount = 0;    // counts the water squares nearby.
-		int groundCount = 0;   // counts the ground squares nearby.
-		if(col > 0) {
-			Object floorTypeObject = field.getFloorTypeAt(row, col - 1);
-			if(floorTypeObject instanceof Water) {
-				waterCount++;
-			} else {
-				groundCount++;
-			}
-		}
-		/**
-		 * The first if condition makes sure don't go out of bounds.
-		 * if the row is greater than 0, we check the 3 rows. we also
-		 * check the columns. Example: If we are in the furtherst
-		 * right column, if i = 2, then col + 2 - 1 would've been out of bounds. 
-		 */		
-		for(int i = 0; i < 3; i++) {  //checks from 0 to 2 providing the next 3 horizontal squares.
-			if(row > 0 && col + i - 1 > 0 && col + i - 1 < field.getWidth()) { 
-				Object floorTypeObject = field.getFloorTypeAt(row - 1, col + i - 1); //gets floor type for pevious row and column.
-				if(floorTypeObject instanceof Water) {
-					waterCount++;
-				} else {
-					groundCount++;
-				}
-			}
+	private Random enterStream(int step, long key)
+	{
+		RandomStreams streams = field.getRandomStreams();
+		if(streams != null) {
+			streams.enter(step, key);
 		}
-		/*
-		 * Math function to get water prob: For each step there is a 10% chance of a square being water.This prob is increased
-		 * by 24% for every other surrounding water square that already exists factored with the number of water squares 
-		 * around (waterCount).If there are ground squares around, there is a value corresponding to 0.04 factored with
-		 * the number of ground squares around (groundCount) which decreases the probability. 
-		 * 
-		 */
-		return 0.1 + 0.24 * waterCount - 0.04 * groundCount;
+		return Randomizer.current();
 	}
 
 	/**
@@ -297,4 +567,31 @@ public class Simulator
 			// wake up
 		}
 	}
+
+	/**
+	 * An observer together with its sampling rate.
+	 */
+	private static class Subscription
+	{
+		private final SimulationObserver observer;
+		private final int everySteps;
+		private final long everyMillis;
+		private int lastStep;
+		private long lastMillis;
+
+		Subscription(SimulationObserver observer, int everySteps, long everyMillis)
+		{
+			this.observer = observer;
+			this.everySteps = everySteps;
+			this.everyMillis = everyMillis;
+		}
+
+		/**
+		 * @return true if enough steps and enough time have passed since the last call.
+		 */
+		boolean isDue(int step, long now)
+		{
+			return step - lastStep >= everySteps && now - lastMillis >= everyMillis;
+		}
+	}
 }
@@ -1,38 +1,87 @@
 package src;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import javax.swing.*;
 
-import src.animal.predators.Lion;
+import src.animal.FieldObject;
+import src.animal.Species;
+import src.animal.plants.Plant;
+import src.fieldType.Ground;
+import src.fieldType.Water;
 
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A graphical view of the simulation grid.
  * The view displays a colored rectangle for each location 
  * representing its contents. It uses a default background color.
- * Colors for each type of species can be defined using the
- * setColor method.
+ * Colors for each species, and for plants and floor types, can be
+ * defined using the setColor methods.
  * 
-
+ * The view follows a Simulator as a SimulationObserver.
+ * 
+ * The view never holds up the simulation. After a step the simulation
+ * thread publishes a Frame: the step's labels and the colors of the cells
+ * that changed since the last frame (see Field.takeChangedCells), or of
+ * all cells after the field was cleared. A Swing timer takes the latest
+ * frame on the event dispatch thread at the target frame rate and draws
+ * it into the pixels of an image. While a frame waits to be taken the
+ * simulation publishes no other, so steps in between are skipped and
+ * their changes go into the next frame. The only thing shared is an
+ * AtomicReference to the waiting frame.
+ * 
+ * Run with -Dsrc.fullRedraw=true to publish every cell in every frame.
+ * The top right corner shows how many frames are shown a second, how long
+ * each takes to draw and how fast the simulation runs.
  */
-public class SimulatorView extends JFrame
+public class SimulatorView extends JFrame implements SimulationObserver
 {
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = Color.white;
 
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
+    // Whether to redraw every cell every frame rather than the changed ones.
+    private static final boolean FULL_REDRAW = Boolean.getBoolean("src.fullRedraw");
+    // How often the frame rate readout is updated, in nanoseconds.
+    private static final long FRAME_RATE_INTERVAL = 1_000_000_000L;
+    // The frames shown per second unless set otherwise.
+    public static final int DEFAULT_FRAME_RATE = 30;
 
     private final String STEP_PREFIX = "Step: ";
     private final String POPULATION_PREFIX = "Population: ";
-    private JLabel stepLabel, population, infoLabel;
+    private JLabel stepLabel, population, infoLabel, frameLabel;
     private FieldView fieldView;
+    // The frame published by the simulation and not yet shown, or null.
+    private final AtomicReference<Frame> waitingFrame = new AtomicReference<>();
+    // Takes the waiting frame at the target frame rate, until the view is disposed.
+    private final Timer frameTimer;
+
+    // Used by the simulation thread: the field of the last frame published,
+    // and a buffer for the changed cells.
+    private Field publishedField;
+    private int[] changedCells = new int[64];
+    private int changedCount;
+
+    // Used on the event dispatch thread: the color of every cell as shown.
+    private final int[] shownColors;
+    // The frames shown and the nanoseconds spent drawing them since the
+    // readout was last updated, and when that was, and the step then.
+    private int frames;
+    private long drawingTime;
+    private long frameRateStart = System.nanoTime();
+    private int frameRateStep;
     
     private boolean lionsAt0 = false;
     // A map for storing colors for participants in the simulation
     private Map<Class, Color> colors;
+    // The color of each species, by its id, or null if it has none.
+    private final Color[] speciesColors = new Color[Population.MAX_SPECIES];
     // A statistics object computing and storing simulation information
     private FieldStats stats;
 
@@ -50,26 +99,63 @@ public class SimulatorView extends JFrame
         stepLabel = new JLabel(STEP_PREFIX, JLabel.CENTER);
         infoLabel = new JLabel("  ", JLabel.CENTER);
         population = new JLabel(POPULATION_PREFIX, JLabel.CENTER);
+        frameLabel = new JLabel("  ", JLabel.RIGHT);
         
         setLocation(100, 50);
         
         fieldView = new FieldView(height, width);
+        shownColors = new int[height * width];
 
         Container contents = getContentPane();
         
         JPanel infoPane = new JPanel(new BorderLayout());
             infoPane.add(stepLabel, BorderLayout.WEST);
             infoPane.add(infoLabel, BorderLayout.CENTER);
+            infoPane.add(frameLabel, BorderLayout.EAST);
         contents.add(infoPane, BorderLayout.NORTH);
         contents.add(fieldView, BorderLayout.CENTER);
         contents.add(population, BorderLayout.SOUTH);
         pack();
         setVisible(true);
+
+        Color green = new Color(0, 255, 0);
+        // Assigning colors to the different animals, as given in their definitions:
+        for(int id : Species.ids()) {
+            if(Species.getColour(id) >= 0) {
+                setColor(id, new Color(Species.getColour(id)));
+            }
+        }
+        setColor(Ground.class, Color.RED);
+        setColor(Water.class, Color.CYAN);
+        setColor(Plant.class, green);
+
+        frameTimer = new Timer(1000 / DEFAULT_FRAME_RATE, event -> showWaitingFrame());
+        frameTimer.start();
     }
     
     /**
-     * Define a color to be used for a given class of animal.
-     * @param animalClass The animal's Class object.
+     * Set how many frames are shown a second, at most.
+     * @param framesPerSecond The target frame rate.
+     */
+    public void setTargetFrameRate(int framesPerSecond)
+    {
+        frameTimer.setDelay(1000 / Math.max(1, framesPerSecond));
+    }
+    
+    /**
+     * Close the window for good, and stop showing frames.
+     */
+    @Override
+    public void dispose()
+    {
+        frameTimer.stop();
+        super.dispose();
+    }
+    
+    /**
+     * Define a color to be used for a given class of object, e.g. a
+     * floor type or Plant. Animals are colored by species instead.
+     * @param animalClass The object's Class object.
      * @param color The color to be used for the given class.
      */
     public void setColor(Class animalClass, Color color)
@@ -77,6 +163,16 @@ public class SimulatorView extends JFrame
         colors.put(animalClass, color);
     }
 
+    /**
+     * Define a color to be used for a species of animal.
+     * @param speciesId The id of the species, see Species.
+     * @param color The color to be used for the species.
+     */
+    public void setColor(int speciesId, Color color)
+    {
+        speciesColors[speciesId] = color;
+    }
+
     /**
      * Display a short information label at the top of the window.
      */
@@ -101,43 +197,166 @@ public class SimulatorView extends JFrame
     }
 
     /**
-     * Show the current status of the field.
+     * Show the state the simulation has reached.
+     */
+    public void simulationUpdated(int step, Field field)
+    {
+        showStatus(step, field);
+    }
+
+    /**
+     * Show the state the simulation stopped in, even if the view is
+     * behind, so that the last step is not skipped.
+     */
+    public void simulationStopped(int step, Field field)
+    {
+        // Take back the waiting frame; the changes it held are shown by a full frame.
+        boolean full = waitingFrame.getAndSet(null) != null;
+        publish(step, field, full);
+    }
+
+    /**
+     * Publish the current status of the field, to be shown by the event
+     * dispatch thread, unless the last one published is still waiting.
+     * Called on the simulation thread, between steps.
      * @param step Which iteration step it is.
      * @param field The field whose status is to be displayed.
      */
     public void showStatus(int step, Field field)
     {
+        if(waitingFrame.get() != null) {
+            // The view is behind: skip this step, its changes are kept for the next frame.
+            return;
+        }
+        publish(step, field, false);
+    }
+
+    /**
+     * Publish a frame of the current status of the field.
+     * @param full Whether to publish every cell rather than the changed ones.
+     */
+    private void publish(int step, Field field, boolean full)
+    {
+        int[] cells;
+        int[] cellColors;
+        changedCount = 0;
+        boolean changesOnly = field.takeChangedCells(this::addChangedCell)
+                              && field == publishedField && !full && !FULL_REDRAW;
+        publishedField = field;
+        if(changesOnly) {
+            cells = Arrays.copyOf(changedCells, changedCount);
+            cellColors = new int[changedCount];
+            for(int i = 0; i < changedCount; i++) {
+                cellColors[i] = colorOf(field, cells[i]);
+            }
+        }
+        else {
+            cells = null;
+            cellColors = new int[field.getDepth() * field.getWidth()];
+            for(int index = 0; index < cellColors.length; index++) {
+                cellColors[index] = colorOf(field, index);
+            }
+        }
+        String stepText = STEP_PREFIX + step + ". Is raining: " + field.isRaining() + ". Is it day? " + field.isDayTime(step);
+        waitingFrame.set(new Frame(step, stepText, POPULATION_PREFIX + stats.getPopulationDetails(field),
+                                   cells, cellColors));
+    }
+
+    /**
+     * Remember a changed cell for the frame being published.
+     */
+    private void addChangedCell(int index)
+    {
+        if(changedCount == changedCells.length) {
+            changedCells = Arrays.copyOf(changedCells, changedCount * 2);
+        }
+        changedCells[changedCount++] = index;
+    }
+
+    /**
+     * @return The color of a cell: that of its animal, else its plant, else its floor type.
+     */
+    private int colorOf(Field field, int index)
+    {
+        Object animal = field.getObjectAt(index);
+        Class<?> shown;
+        if(animal instanceof FieldObject) {
+            Color color = speciesColors[((FieldObject) animal).getSpeciesId()];
+            return (color == null ? UNKNOWN_COLOR : color).getRGB();
+        }
+        else if(animal != null) {
+            shown = animal.getClass();
+        }
+        else if(field.hasPlant(index)) {
+            shown = Plant.class;
+        }
+        else {
+            shown = field.getFloorTypeAt(index).getClass();
+        }
+        return getColor(shown).getRGB();
+    }
+
+    /**
+     * Draw the waiting frame, if there is one. Called by the frame timer
+     * on the event dispatch thread, and must only be called there.
+     * @throws IllegalStateException If called on another thread.
+     */
+    public void showWaitingFrame()
+    {
+        if(!SwingUtilities.isEventDispatchThread()) {
+            throw new IllegalStateException("Frames must be shown on the event dispatch thread");
+        }
+        Frame frame = waitingFrame.getAndSet(null);
+        if(frame == null) {
+            return;
+        }
         if(!isVisible()) {
             setVisible(true);
         }
-            
-        stepLabel.setText(STEP_PREFIX + step + ". Is raining: " + field.isRaining() + ". Is it day? " + field.isDayTime(step));
-        stats.reset();
-        
-        fieldView.preparePaint();
-
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-            	Object plant = field.getPlantAt(row, col);
-            	if(plant != null) {
-            		stats.incrementCount(plant.getClass());
-                    fieldView.drawMark(col, row, getColor(plant.getClass()));
-            	}
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    stats.incrementCount(animal.getClass());
-                    fieldView.drawMark(col, row, getColor(animal.getClass()));
-                } else if(plant == null){                	
-                	//fieldView.drawMark(col, row, EMPTY_COLOR);
-                	Object floorType = field.getFloorTypeAt(row, col);
-                    fieldView.drawMark(col, row, getColor(floorType.getClass()));
-                }
+        long start = System.nanoTime();
+        stepLabel.setText(frame.stepText);
+        population.setText(frame.populationText);
+        if(frame.cells == null) {
+            System.arraycopy(frame.colors, 0, shownColors, 0, shownColors.length);
+        }
+        else {
+            for(int i = 0; i < frame.cells.length; i++) {
+                shownColors[frame.cells[i]] = frame.colors[i];
+            }
+        }
+        if(fieldView.preparePaint() || frame.cells == null) {
+            for(int index = 0; index < shownColors.length; index++) {
+                fieldView.drawMark(index, shownColors[index]);
+            }
+        }
+        else {
+            for(int i = 0; i < frame.cells.length; i++) {
+                fieldView.drawMark(frame.cells[i], frame.colors[i]);
             }
         }
-        stats.countFinished();
-        
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
         fieldView.repaint();
+        frameDrawn(frame.step, System.nanoTime() - start);
+    }
+
+    /**
+     * Count a frame, and update the frame rate readout once a second.
+     * @param step The step shown by the frame.
+     * @param nanos How long the frame took to draw.
+     */
+    private void frameDrawn(int step, long nanos)
+    {
+        frames++;
+        drawingTime += nanos;
+        long now = System.nanoTime();
+        if(now - frameRateStart >= FRAME_RATE_INTERVAL) {
+            double seconds = (now - frameRateStart) / 1e9;
+            frameLabel.setText(String.format("%.1f fps, %.2f ms/frame, %.0f steps/s  ", frames / seconds,
+                                             drawingTime / 1e6 / frames, Math.max(0, step - frameRateStep) / seconds));
+            frames = 0;
+            drawingTime = 0;
+            frameRateStart = now;
+            frameRateStep = step;
+        }
     }
 
     /**
@@ -164,8 +383,9 @@ public class SimulatorView extends JFrame
         private int gridWidth, gridHeight;
         private int xScale, yScale;
         Dimension size;
-        private Graphics g;
-        private Image fieldImage;
+        // The image the field is drawn into, and its pixels.
+        private BufferedImage fieldImage;
+        private int[] pixels;
 
         /**
          * Create a new FieldView component.
@@ -189,32 +409,44 @@ public class SimulatorView extends JFrame
         /**
          * Prepare for a new round of painting. Since the component
          * may be resized, compute the scaling factor again.
+         * @return true if the image was made anew and must be drawn entirely.
          */
-        public void preparePaint()
+        public boolean preparePaint()
         {
-            if(! size.equals(getSize())) {  // if the size has changed...
-                size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if(xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
-                }
-                yScale = size.height / gridHeight;
-                if(yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
-                }
+            if(fieldImage != null && size.equals(getSize())) {
+                return false;
+            }
+            size = getSize();
+            xScale = size.width / gridWidth;
+            if(xScale < 1) {
+                xScale = GRID_VIEW_SCALING_FACTOR;
+            }
+            yScale = size.height / gridHeight;
+            if(yScale < 1) {
+                yScale = GRID_VIEW_SCALING_FACTOR;
             }
+            fieldImage = new BufferedImage(gridWidth * xScale, gridHeight * yScale, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) fieldImage.getRaster().getDataBuffer()).getData();
+            // The gaps between the cells.
+            Arrays.fill(pixels, getBackground().getRGB());
+            return true;
         }
         
         /**
          * Paint on grid location on this field in a given color.
+         * @param index The index of the cell.
+         * @param rgb The color, as an RGB value.
          */
-        public void drawMark(int x, int y, Color color)
+        public void drawMark(int index, int rgb)
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
+            int x = index % gridWidth;
+            int y = index / gridWidth;
+            int imageWidth = gridWidth * xScale;
+            int start = y * yScale * imageWidth + x * xScale;
+            for(int line = 0; line < yScale - 1; line++) {
+                Arrays.fill(pixels, start, start + xScale - 1, rgb);
+                start += imageWidth;
+            }
         }
 
         /**
@@ -230,9 +462,33 @@ public class SimulatorView extends JFrame
                 }
                 else {
                     // Rescale the previous image.
-                    g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
+                    g.drawImage(fieldImage, 0, 0, fieldImage.getWidth() * currentSize.width / Math.max(size.width, 1),
+                                fieldImage.getHeight() * currentSize.height / Math.max(size.height, 1), null);
                 }
             }
         }
     }
+
+    /**
+     * What the simulation publishes for the view to show: the labels of a
+     * step and the colors of the cells changed since the frame before, or
+     * of all cells. Never changed once published.
+     */
+    private static final class Frame
+    {
+        final int step;
+        final String stepText, populationText;
+        // The changed cells, or null if colors holds every cell.
+        final int[] cells;
+        final int[] colors;
+
+        Frame(int step, String stepText, String populationText, int[] cells, int[] colors)
+        {
+            this.step = step;
+            this.stepText = stepText;
+            this.populationText = populationText;
+            this.cells = cells;
+            this.colors = colors;
+        }
+    }
 }
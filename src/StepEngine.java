@@ -0,0 +1,20 @@
+package src;
+
+import src.animal.Ecosystem;
+
+/**
+ * The strategy used by the Simulator to let every actor act once per
+ * step.
+ */
+public interface StepEngine
+{
+    /**
+     * Let every actor in the list act once. Newborn actors are appended
+     * to the list, then the actors that are no longer alive, newborns
+     * included, are removed from it with removeDead.
+     * @param actors The actors of the simulation.
+     * @param ecosystem The ecosystem of the actors, and through it their field.
+     * @param step The current step of the simulation.
+     */
+    void actAll(ActorList actors, Ecosystem ecosystem, int step);
+}
@@ -0,0 +1,343 @@
+package src;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import src.animal.Species;
+
+/**
+ * Runs many independent headless simulations with different parameters
+ * at the same time, one per worker thread, and writes a summary of each
+ * run to a CSV file as soon as it is done.
+ *
+ * The sweep is described by a properties file, e.g.
+ *
+ *     steps = 5000
+ *     size = 80x120
+ *     seeds = 1,2,3
+ *     threads = 0
+ *     output = sweep.csv
+ *     lionBreedingProbability = 0.005, 0.01, 0.02
+ *     rainingProbability = random(0.1, 0.4)
+ *     samples = 10
+ *
+ * Every other key is a parameter (see Parameter.getKey). A list of
+ * values makes a grid: every combination of the listed values is run.
+ * random(low, high) draws the value uniformly for each of "samples"
+ * draws, which are combined with every point of the grid. Each
+ * combination is run once per seed; "runs = 5" is short for seeds 1 to 5.
+ * "threads = 0" uses one thread per core.
+ *
+ * Every run has its own Field, parameters and random streams (see
+ * RandomStreams), so runs share nothing and a run with a given seed
+ * gives the same result whatever else runs next to it.
+ *
+ * A line of the results holds the run, the seed, the swept parameters,
+ * the number of steps simulated, the step at which the simulation
+ * stopped being viable (-1 if it never did) and, for each species, its
+ * peak and mean population and the step it died out (-1 if it did not).
+ */
+public class SweepRunner
+{
+    // The species reported on, followed by the plants.
+    private static final int[] SPECIES = Species.ids();
+
+    private final int steps;
+    private final int depth, width;
+    private final long[] seeds;
+    private final int threads;
+    // The parameters varied by the sweep, and the values of each run.
+    private final List<Parameter> swept;
+    private final List<SimulationParameters> settings;
+
+    /**
+     * Read a sweep from its description.
+     * @param spec The properties describing the sweep.
+     * @throws IllegalArgumentException If the description is invalid.
+     */
+    public SweepRunner(Properties spec)
+    {
+        steps = Integer.parseInt(spec.getProperty("steps", "4000").trim());
+        String[] size = spec.getProperty("size", "80x120").trim().split("x");
+        if(size.length != 2) {
+            throw new IllegalArgumentException("The size must look like 80x120.");
+        }
+        depth = Integer.parseInt(size[0].trim());
+        width = Integer.parseInt(size[1].trim());
+        seeds = parseSeeds(spec);
+        int requested = Integer.parseInt(spec.getProperty("threads", "0").trim());
+        threads = requested > 0 ? requested : Runtime.getRuntime().availableProcessors();
+
+        // Split the parameters into the listed values and the random ranges.
+        Map<Parameter, double[]> grid = new LinkedHashMap<>();
+        Map<Parameter, double[]> ranges = new LinkedHashMap<>();
+        for(Parameter parameter : Parameter.values()) {
+            String value = spec.getProperty(parameter.getKey());
+            if(value == null) {
+                continue;
+            }
+            value = value.trim();
+            if(value.startsWith("random(") && value.endsWith(")")) {
+                double[] range = parseValues(value.substring(7, value.length() - 1));
+                if(range.length != 2 || range[0] > range[1]) {
+                    throw new IllegalArgumentException("Invalid range for " + parameter.getKey() + ": " + value);
+                }
+                ranges.put(parameter, range);
+            }
+            else {
+                grid.put(parameter, parseValues(value));
+            }
+        }
+        for(String key : spec.stringPropertyNames()) {
+            if(!isSetting(key)) {
+                Parameter.forKey(key);
+            }
+        }
+        swept = new ArrayList<>(grid.keySet());
+        swept.addAll(ranges.keySet());
+
+        int samples = ranges.isEmpty() ? 1 : Integer.parseInt(spec.getProperty("samples", "10").trim());
+        Random rand = new Random(Long.parseLong(spec.getProperty("sampleSeed", "0").trim()));
+        settings = new ArrayList<>();
+        for(SimulationParameters point : gridPoints(grid)) {
+            for(int sample = 0; sample < samples; sample++) {
+                SimulationParameters parameters = new SimulationParameters(point);
+                for(Map.Entry<Parameter, double[]> range : ranges.entrySet()) {
+                    double low = range.getValue()[0];
+                    double high = range.getValue()[1];
+                    parameters.set(range.getKey(), low + (high - low) * rand.nextDouble());
+                }
+                settings.add(parameters);
+            }
+        }
+    }
+
+    /**
+     * Run a sweep described by a properties file.
+     * @param args The description file.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if(args.length != 1) {
+            System.err.println("Usage: java src.SweepRunner <sweep.properties>");
+            System.exit(2);
+        }
+        Properties spec = new Properties();
+        try(Reader reader = Files.newBufferedReader(Paths.get(args[0]))) {
+            spec.load(reader);
+        }
+        SweepRunner sweep = new SweepRunner(spec);
+        Path output = Paths.get(spec.getProperty("output", "sweep.csv").trim());
+        System.out.println("Running " + sweep.getRunCount() + " simulations on " + sweep.threads
+                           + " threads, writing to " + output);
+        sweep.run(output);
+    }
+
+    /**
+     * @return The number of simulations in the sweep.
+     */
+    public int getRunCount()
+    {
+        return settings.size() * seeds.length;
+    }
+
+    /**
+     * Run every simulation of the sweep and write the results. Lines are
+     * written in the order the runs finish.
+     * @param output The CSV file to write, replaced if it exists.
+     * @throws IOException If the results cannot be written.
+     * @throws InterruptedException If interrupted while waiting for the runs.
+     */
+    public void run(Path output) throws IOException, InterruptedException
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try(BufferedWriter writer = Files.newBufferedWriter(output)) {
+            writer.write(header());
+            writer.newLine();
+            writer.flush();
+
+            List<Future<?>> runs = new ArrayList<>();
+            int run = 0;
+            for(SimulationParameters parameters : settings) {
+                for(long seed : seeds) {
+                    int number = run++;
+                    runs.add(executor.submit(() -> {
+                        String line = runOne(number, parameters, seed);
+                        synchronized(writer) {
+                            writer.write(line);
+                            writer.newLine();
+                            writer.flush();
+                        }
+                        return null;
+                    }));
+                }
+            }
+            for(Future<?> future : runs) {
+                try {
+                    future.get();
+                }
+                catch(ExecutionException e) {
+                    executor.shutdownNow();
+                    if(e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IllegalStateException("A run of the sweep failed.", e.getCause());
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Simulate one run and summarise it.
+     * @return The line of results.
+     */
+    private String runOne(int run, SimulationParameters parameters, long seed)
+    {
+        Field field = new Field(depth, width);
+        field.setParameters(new SimulationParameters(parameters));
+        field.setRandomStreams(new RandomStreams(seed));
+        Simulator simulator = new Simulator(field, true);
+
+        int kinds = SPECIES.length + 1;
+        int[] peak = new int[kinds];
+        long[] total = new long[kinds];
+        int[] extinct = new int[kinds];
+        Arrays.fill(extinct, -1);
+        int[] counts = new int[kinds];
+        int collapse = -1;
+        int step = 0;
+        while(true) {
+            Population population = field.getPopulation();
+            for(int kind = 0; kind < SPECIES.length; kind++) {
+                counts[kind] = population.getCount(SPECIES[kind]);
+            }
+            counts[kinds - 1] = field.getPlantCount();
+            for(int kind = 0; kind < kinds; kind++) {
+                peak[kind] = Math.max(peak[kind], counts[kind]);
+                total[kind] += counts[kind];
+                if(counts[kind] == 0 && extinct[kind] < 0) {
+                    extinct[kind] = step;
+                }
+            }
+            if(!simulator.isViable()) {
+                collapse = step;
+                break;
+            }
+            if(step == steps) {
+                break;
+            }
+            simulator.simulateOneStep();
+            step++;
+        }
+
+        StringBuilder line = new StringBuilder();
+        line.append(run).append(',').append(seed);
+        for(Parameter parameter : swept) {
+            line.append(',').append(parameters.get(parameter));
+        }
+        line.append(',').append(step).append(',').append(collapse);
+        for(int kind = 0; kind < kinds; kind++) {
+            line.append(',').append(peak[kind])
+                .append(',').append(String.format("%.1f", total[kind] / (double) (step + 1)))
+                .append(',').append(extinct[kind]);
+        }
+        return line.toString();
+    }
+
+    private String header()
+    {
+        StringBuilder header = new StringBuilder("run,seed");
+        for(Parameter parameter : swept) {
+            header.append(',').append(parameter.getKey());
+        }
+        header.append(",steps,collapse");
+        for(int kind = 0; kind <= SPECIES.length; kind++) {
+            String name = kind < SPECIES.length ? Species.getName(SPECIES[kind]) : "Plant";
+            name = Character.toLowerCase(name.charAt(0)) + name.substring(1);
+            header.append(',').append(name).append("Peak")
+                  .append(',').append(name).append("Mean")
+                  .append(',').append(name).append("Extinct");
+        }
+        return header.toString();
+    }
+
+    /**
+     * @return Every combination of the listed values, or the defaults if none are listed.
+     */
+    private static List<SimulationParameters> gridPoints(Map<Parameter, double[]> grid)
+    {
+        List<SimulationParameters> points = new ArrayList<>();
+        points.add(new SimulationParameters());
+        for(Map.Entry<Parameter, double[]> axis : grid.entrySet()) {
+            List<SimulationParameters> next = new ArrayList<>();
+            for(SimulationParameters point : points) {
+                for(double value : axis.getValue()) {
+                    next.add(new SimulationParameters(point).set(axis.getKey(), value));
+                }
+            }
+            points = next;
+        }
+        return points;
+    }
+
+    private static long[] parseSeeds(Properties spec)
+    {
+        String listed = spec.getProperty("seeds");
+        if(listed != null) {
+            String[] values = listed.split(",");
+            long[] seeds = new long[values.length];
+            for(int i = 0; i < values.length; i++) {
+                seeds[i] = Long.parseLong(values[i].trim());
+            }
+            return seeds;
+        }
+        int runs = Integer.parseInt(spec.getProperty("runs", "1").trim());
+        long[] seeds = new long[runs];
+        for(int i = 0; i < runs; i++) {
+            seeds[i] = i + 1;
+        }
+        return seeds;
+    }
+
+    private static double[] parseValues(String list)
+    {
+        String[] values = list.split(",");
+        double[] parsed = new double[values.length];
+        for(int i = 0; i < values.length; i++) {
+            parsed[i] = Double.parseDouble(values[i].trim());
+        }
+        return parsed;
+    }
+
+    /**
+     * @return Whether a key of the description is a setting of the sweep rather than a parameter.
+     */
+    private static boolean isSetting(String key)
+    {
+        switch(key) {
+            case "steps": case "size": case "seeds": case "runs": case "threads":
+            case "samples": case "sampleSeed": case "output":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
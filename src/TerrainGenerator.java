@@ -0,0 +1,20 @@
+package src;
+
+import java.util.Random;
+
+/**
+ * The strategy used by the Simulator to lay out water and ground when
+ * the simulation is reset.
+ */
+public interface TerrainGenerator
+{
+    /**
+     * Give every cell of the field a floor type, water or ground. The
+     * same field size and the same draws from the generator give the
+     * same terrain.
+     * @param field The field, cleared.
+     * @param random The generator to draw from, the terrain stream of the
+     *               simulation if it uses per-actor streams.
+     */
+    void generate(Field field, Random random);
+}
@@ -0,0 +1,164 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import src.animal.Ecosystem;
+import src.animal.FieldObject;
+
+/**
+ * Lets the actors act in parallel. The field is cut into square tiles
+ * and every actor belongs to the tile it stands in at the start of the
+ * step. The tiles are coloured like a 2x2 checkerboard and the four
+ * colours are processed one after the other; all tiles of one colour
+ * run concurrently on a ForkJoinPool, each tile's actors in list order.
+ * 
+ * An actor only looks at, moves to, eats from or gives birth into the
+ * cell it starts the step in and the cells next to it, so the cells it
+ * touches are at most one cell outside its tile. Two tiles of the same
+ * colour are a whole tile apart, so as long as tiles are at least two
+ * cells wide the cells touched by concurrently running tiles never
+ * overlap. Nothing an actor does may reach further than that.
+ * 
+ * Newborns are collected per tile and appended to the actor list in
+ * tile order, so the order of the list does not depend on the number of
+ * threads. With per-actor random streams (see RandomStreams) every actor
+ * draws from the stream of its cell, which makes whole runs identical
+ * whatever the number of threads.
+ */
+public class TiledStepEngine implements StepEngine
+{
+    // The default width and height of a tile, in cells.
+    public static final int DEFAULT_TILE_SIZE = 16;
+    // The smallest tile that keeps same coloured tiles independent.
+    private static final int MIN_TILE_SIZE = 2;
+
+    private final ForkJoinPool pool;
+    private final int tileSize;
+    // The actors of each tile, and the newborns of each tile.
+    private final List<List<FieldObject>> tileActors;
+    private final List<List<FieldObject>> tileNewborns;
+
+    /**
+     * Create an engine using the default tile size.
+     * @param threads The number of worker threads.
+     */
+    public TiledStepEngine(int threads)
+    {
+        this(threads, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Create an engine.
+     * @param threads The number of worker threads.
+     * @param tileSize The width and height of a tile, in cells. At least 2.
+     */
+    public TiledStepEngine(int threads, int tileSize)
+    {
+        if(tileSize < MIN_TILE_SIZE) {
+            throw new IllegalArgumentException("Tiles must be at least " + MIN_TILE_SIZE + " cells wide.");
+        }
+        pool = new ForkJoinPool(threads);
+        this.tileSize = tileSize;
+        tileActors = new ArrayList<>();
+        tileNewborns = new ArrayList<>();
+    }
+
+    public void actAll(ActorList actors, Ecosystem ecosystem, int step)
+    {
+        Field field = ecosystem.getField();
+        int tilesDown = (field.getDepth() + tileSize - 1) / tileSize;
+        int tilesAcross = (field.getWidth() + tileSize - 1) / tileSize;
+        prepareTiles(tilesDown * tilesAcross);
+
+        for(FieldObject actor : actors) {
+            Location location = actor.getLocation();
+            if(location != null) {
+                int tile = (location.getRow() / tileSize) * tilesAcross + location.getCol() / tileSize;
+                tileActors.get(tile).add(actor);
+            }
+        }
+
+        for(int colour = 0; colour < 4; colour++) {
+            pool.invoke(new ColourPass(field, colour, tilesDown, tilesAcross, step));
+        }
+
+        for(List<FieldObject> newborns : tileNewborns) {
+            actors.addAll(newborns);
+            newborns.clear();
+        }
+        actors.removeDead();
+        for(List<FieldObject> tile : tileActors) {
+            tile.clear();
+        }
+    }
+
+    /**
+     * Stop the worker threads. The engine cannot be used afterwards.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Make sure there is an (empty) actor and newborn list for every tile.
+     */
+    private void prepareTiles(int tiles)
+    {
+        while(tileActors.size() < tiles) {
+            tileActors.add(new ArrayList<>());
+            tileNewborns.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Runs all the tiles of one colour concurrently.
+     */
+    private class ColourPass extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Field field;
+        private final int colour, tilesDown, tilesAcross, step;
+
+        ColourPass(Field field, int colour, int tilesDown, int tilesAcross, int step)
+        {
+            this.field = field;
+            this.colour = colour;
+            this.tilesDown = tilesDown;
+            this.tilesAcross = tilesAcross;
+            this.step = step;
+        }
+
+        protected void compute()
+        {
+            RandomStreams streams = field.getRandomStreams();
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for(int tileRow = colour / 2; tileRow < tilesDown; tileRow += 2) {
+                for(int tileCol = colour % 2; tileCol < tilesAcross; tileCol += 2) {
+                    int tile = tileRow * tilesAcross + tileCol;
+                    if(!tileActors.get(tile).isEmpty()) {
+                        tasks.add(ForkJoinTask.adapt(() -> actTile(tile, streams)));
+                    }
+                }
+            }
+            invokeAll(tasks);
+        }
+
+        private void actTile(int tile, RandomStreams streams)
+        {
+            List<FieldObject> newborns = tileNewborns.get(tile);
+            for(FieldObject actor : tileActors.get(tile)) {
+                if(streams != null && actor.getLocation() != null) {
+                    streams.enter(step, field.indexOf(actor.getLocation()));
+                }
+                actor.act(newborns, step);
+            }
+            RandomStreams.leave();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package src;
+
+import java.util.BitSet;
+
+import src.fieldType.Water;
+
+/**
+ * Records which cells of a field have water close to them. Terrain does
+ * not change while the simulation runs, so the answer for every cell is
+ * computed once, with a horizontal and a vertical sliding window pass,
+ * and afterwards each query is a single bit lookup.
+ * 
+ * Water is close to a cell if one of the rows row-3 .. row+2 and one of
+ * the columns col-3 .. col+2 holds water, leaving out the last row and
+ * the last column of the field.
+ */
+class WaterProximityIndex
+{
+    // How far away water may be and still count as close.
+    static final int LENGTH = 3;
+
+    private final int width;
+    private final BitSet close;
+
+    /**
+     * Build the index for the current floor types of a field.
+     */
+    WaterProximityIndex(FieldStorage storage, int depth, int width)
+    {
+        this.width = width;
+        int lastRow = depth - 2;
+        int lastCol = width - 2;
+
+        // First pass: is there water in the columns of the window, on the same row?
+        BitSet horizontal = new BitSet(depth * width);
+        int[] prefix = new int[width + 1];
+        for(int row = 0; row <= lastRow; row++) {
+            for(int col = 0; col < width; col++) {
+                boolean water = col <= lastCol && storage.getFloorType(row, col) instanceof Water;
+                prefix[col + 1] = prefix[col] + (water ? 1 : 0);
+            }
+            for(int col = 0; col < width; col++) {
+                int from = Math.max(0, col - LENGTH);
+                int to = Math.min(lastCol, col + LENGTH - 1);
+                if(from <= to && prefix[to + 1] - prefix[from] > 0) {
+                    horizontal.set(row * width + col);
+                }
+            }
+        }
+
+        // Second pass: does any row of the window have a hit from the first pass?
+        close = new BitSet(depth * width);
+        prefix = new int[depth + 1];
+        for(int col = 0; col < width; col++) {
+            for(int row = 0; row < depth; row++) {
+                prefix[row + 1] = prefix[row] + (horizontal.get(row * width + col) ? 1 : 0);
+            }
+            for(int row = 0; row < depth; row++) {
+                int from = Math.max(0, row - LENGTH);
+                int to = Math.min(lastRow, row + LENGTH - 1);
+                if(from <= to && prefix[to + 1] - prefix[from] > 0) {
+                    close.set(row * width + col);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if there is water close to the given cell.
+     */
+    boolean isWaterClose(int row, int col)
+    {
+        return close.get(row * width + col);
+    }
+}
@@ -0,0 +1,201 @@
+package src.animal;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The state of the animals of an ecosystem kept as a struct of arrays, for
+ * the EcsStepEngine. Every animal is an entity: a small id indexing
+ * parallel primitive arrays of its species, age, food level, steps
+ * being sick, cell, flags and age limit. The ids of the dead are recycled through a
+ * free list, so the arrays stay as long as the largest population and
+ * an id never changes while its animal lives.
+ *
+ * The Animal objects stay in the field as a facade. An animal that is
+ * attached to the store reads its age, food level and sickness from
+ * here; moving, dying, falling sick and restoring a checkpoint write
+ * through to here. The store is only used once an EcsStepEngine has
+ * activated it. From then on every animal created in the ecosystem is
+ * attached at birth, until an animal acts on its own (another engine is
+ * used), which detaches it and deactivates the store.
+ */
+public final class ActorStore
+{
+    // The flags of an entity.
+    static final int ALIVE = 1;
+    static final int MALE = 2;
+    static final int SICK = 4;
+    // Born during the current step, so it does not act until the next one.
+    static final int NEWBORN = 8;
+    // Of a species that can die of its sickness.
+    static final int TRACKS_SICKNESS = 16;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // The state of each entity, indexed by its id.
+    int[] species;
+    int[] age;
+    int[] food;
+    int[] sickSteps;
+    int[] cell;
+    int[] flags;
+    // The maximum age of the species, next to the age so that the
+    // counters can be compared lane by lane.
+    int[] maxAge;
+    // The facade of each entity, or null if the id is free.
+    Animal[] animals;
+
+    // Every id below this one has been used.
+    private int used;
+    // The ids free for reuse, the last freed on top.
+    private int[] free;
+    private int freeCount;
+    // Whether animals are attached at birth.
+    private boolean active;
+    // How many times the store has been cleared.
+    private int clears;
+
+    /**
+     * Create an empty, inactive store.
+     */
+    public ActorStore()
+    {
+        allocate(INITIAL_CAPACITY);
+        free = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return The number of living entities.
+     */
+    public int size()
+    {
+        return used - freeCount;
+    }
+
+    /**
+     * Forget every entity, e.g. when the field is cleared. The store
+     * stays active if it was.
+     */
+    public void clear()
+    {
+        Arrays.fill(animals, 0, used, null);
+        Arrays.fill(flags, 0, used, 0);
+        used = 0;
+        freeCount = 0;
+        clears++;
+    }
+
+    /**
+     * @return One more than the largest id in use. Loops over the
+     *         entities run up to here and skip those that are not alive.
+     */
+    int limit()
+    {
+        return used;
+    }
+
+    /**
+     * @return How many times the store has been cleared, so that a user
+     *         can tell whether its entities were replaced.
+     */
+    int clears()
+    {
+        return clears;
+    }
+
+    boolean isActive()
+    {
+        return active;
+    }
+
+    /**
+     * Start attaching animals, first the living ones of the given list.
+     * @param actors The animals of the field.
+     */
+    void activate(List<? extends FieldObject> actors)
+    {
+        active = true;
+        for(FieldObject actor : actors) {
+            if(actor instanceof Animal && actor.isAlive()) {
+                ((Animal) actor).attach(this);
+            }
+        }
+    }
+
+    /**
+     * Stop attaching animals at birth.
+     */
+    void deactivate()
+    {
+        active = false;
+    }
+
+    /**
+     * Add an entity.
+     * @return The id of the new entity.
+     */
+    int add(Animal animal, int speciesId, int age, int food, int sickSteps, int cell, boolean male, boolean sick)
+    {
+        int id;
+        if(freeCount > 0) {
+            id = free[--freeCount];
+        }
+        else {
+            if(used == animals.length) {
+                allocate(used * 2);
+            }
+            id = used++;
+        }
+        animals[id] = animal;
+        species[id] = speciesId;
+        this.age[id] = age;
+        this.food[id] = food;
+        this.sickSteps[id] = sickSteps;
+        this.cell[id] = cell;
+        flags[id] = ALIVE | NEWBORN | (male ? MALE : 0) | (sick ? SICK : 0)
+                    | (Species.tracksSickness[speciesId] ? TRACKS_SICKNESS : 0);
+        maxAge[id] = Species.maxAge[speciesId];
+        return id;
+    }
+
+    /**
+     * Remove an entity, freeing its id.
+     * @param id The id of the entity.
+     */
+    void remove(int id)
+    {
+        animals[id] = null;
+        flags[id] = 0;
+        if(freeCount == free.length) {
+            free = Arrays.copyOf(free, freeCount * 2);
+        }
+        free[freeCount++] = id;
+    }
+
+    /**
+     * Grow the arrays to the given capacity.
+     */
+    private void allocate(int capacity)
+    {
+        if(animals == null) {
+            species = new int[capacity];
+            age = new int[capacity];
+            food = new int[capacity];
+            sickSteps = new int[capacity];
+            cell = new int[capacity];
+            flags = new int[capacity];
+            maxAge = new int[capacity];
+            animals = new Animal[capacity];
+        }
+        else {
+            species = Arrays.copyOf(species, capacity);
+            age = Arrays.copyOf(age, capacity);
+            food = Arrays.copyOf(food, capacity);
+            sickSteps = Arrays.copyOf(sickSteps, capacity);
+            cell = Arrays.copyOf(cell, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            maxAge = Arrays.copyOf(maxAge, capacity);
+            animals = Arrays.copyOf(animals, capacity);
+        }
+    }
+}
@@ -1,49 +1,420 @@
 package src.animal;
+
 import java.util.List;
-import java.util.Random;
 
+import src.EventLog;
 import src.Field;
 import src.Location;
-import src.Randomizer;
+import src.SimulationParameters;
 
 /**
  * A class representing shared characteristics of animals.
  * 
+ * Every species behaves the same way, following its definition in
+ * Species: each step an animal ages, gets hungrier and, if it is sick,
+ * sicker; it may give birth; and while its species is awake it looks for
+ * food and moves. Sick animals pass their disease on to their neighbours
+ * once every step, after all the animals have acted (see Infection).
+ * 
+ * Animals are created with Species.create, which puts them into an
+ * Ecosystem. An animal created with its constructor alone belongs to
+ * none: it does not pass its disease on and is not reused once dead.
+ * A species whose definition names no class is made of plain Animals.
  */
-public abstract class Animal extends FieldObject
+public class Animal extends FieldObject
 {
     //protected static final String FIELD_TYPE;
-    protected final boolean isMale; // males don't give birth.
+    protected boolean isMale; // males don't give birth.
     protected boolean isSick;
     protected int stepsBeingSick = 0;
-    public static final Random rand = Randomizer.getRandom();
     protected int foodLevel; //how much food the anima has
     protected static final int MAX_STEPS_SICK = Field.FULL_DAY_LENGTH * 7;
     protected static final int MAX_FOOD = Field.FULL_DAY_LENGTH; //how much food an animal can eat before being full.
-    
-    public abstract double getProbabilityGettingInfected();
+    // The ecosystem of the animal, or null until it joins one.
+    private Ecosystem ecosystem;
+    // The store holding the state of the animal while it is attached to
+    // one, or null, and the animal's id there (see ActorStore).
+    private ActorStore store;
+    private int entity;
     
     /**
-     * Create a new animal at location in field.
+     * Create a new animal at location in field. An animal can be created
+     * as a newborn (age zero, fed and healthy) or with a random age, food
+     * level and sickness, as given by the definition of its species.
      * 
+     * @param randomAge If true, the animal will have a random age, food level and sickness.
      * @param field The field currently occupied.
      * @param location The location within the field.
      */
-    public Animal(Field field, Location location)
+    public Animal(boolean randomAge, Field field, Location location)
     {
     	super(field, location);
-        this.isMale = rand.nextBoolean();
+        init(randomAge);
+    }
+    
+    /**
+     * Create a new animal of a species given by its id, for a species
+     * whose definition names no class.
+     * 
+     * @param speciesId The id of the species, see Species.
+     * @param randomAge If true, the animal will have a random age, food level and sickness.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     */
+    public Animal(int speciesId, boolean randomAge, Field field, Location location)
+    {
+        super(defined(speciesId), field, location);
+        init(randomAge);
+    }
+    
+    private static int defined(int speciesId)
+    {
+        if(!Species.isDefined(speciesId)) {
+            throw new IllegalArgumentException("No species is defined with the id " + speciesId);
+        }
+        return speciesId;
+    }
+    
+    /**
+     * Bring a dead animal back to life as a new one, e.g. one taken from
+     * the pool of its field (see AnimalPool). It is then the same as an
+     * animal created with the same arguments, and draws the same random
+     * numbers.
+     * 
+     * @param randomAge If true, the animal will have a random age, food level and sickness.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     */
+    void reinit(boolean randomAge, Field field, Location location)
+    {
+        // What the fields of a new animal are before its constructor runs.
+        isMale = false;
+        isSick = false;
+        stepsBeingSick = 0;
+        foodLevel = 0;
+        ecosystem = null;
+        store = null;
+        enter(field, location);
+        init(randomAge);
+    }
+    
+    /**
+     * Draw the sex of the animal, and its age, food level and sickness.
+     */
+    private void init(boolean randomAge)
+    {
+        int id = getSpeciesId();
+        Field field = getField();
+        this.isMale = rand().nextBoolean();
+        if(this.isMale) {
+            field.setMale(id, getCell(), true);
+        }
+        if(randomAge) {
+            age = rand().nextInt(Species.maxAge[id]);
+            foodLevel = rand().nextInt(Species.initialFood[id]);
+            this.isSick = rand().nextDouble() < Species.initialSickness[id];
+            if(this.isSick && Species.initialSickSteps[id] > 0) {
+                this.stepsBeingSick = rand().nextInt(Species.initialSickSteps[id]);
+            }
+        }
+        else {
+            age = 0;
+            foodLevel = Species.newbornFood[id];
+            this.isSick = false;
+        }
+    }
+    
+    /**
+     * Make the animal one of an ecosystem, as it is created: the sick
+     * are tracked by its infection, and while an EcsStepEngine steps the
+     * ecosystem the animal is attached to its store.
+     * @param ecosystem The ecosystem of the animal's field.
+     */
+    void join(Ecosystem ecosystem)
+    {
+        this.ecosystem = ecosystem;
+        if(isSick) {
+            ecosystem.getInfection().add(this);
+        }
+        if(ecosystem.getActorStore().isActive()) {
+            attach(ecosystem.getActorStore());
+        }
+    }
+    
+    /**
+     * @return The name of the animal's species, e.g. Lion.
+     */
+    public String getSpecies()
+    {
+        return Species.getName(getSpeciesId());
+    }
+    
+    /**
+     * @return The probability that the animal gets infected upon contact with a sick animal.
+     */
+    public double getProbabilityGettingInfected() {
+    	return Species.infectionProbability(getSpeciesId(), getField().getParameters());
+    }
+    
+    /**
+     * This is what an animal does every step: it ages, gets hungrier and
+     * sicker, may give birth and catch a disease, and, while its species
+     * is awake, looks for food and moves. It may die of old age, hunger,
+     * sickness or overcrowding in the process.
+     * @param newAnimals A list to return newly born animals.
+     * @param stepCount The current step.
+     */
+    @Override
+    public final void act(List<FieldObject> newAnimals, int stepCount)
+    {
+        if(store != null) {
+            // The animals act on their own again, instead of in an EcsStepEngine.
+            store.deactivate();
+            detach();
+        }
+        int id = getSpeciesId();
+        incrementAge(Species.maxAge[id]);
+        incrementHunger();
+        if(Species.tracksSickness[id]) {
+            incrementStepsSick();
+        }
+        if(!isAlive()) {
+            return;
+        }
+        giveBirth(newAnimals);
+        // The above actions happen even though the animal sleeps.
+        Field field = getField();
+        if(field.isDayTime(stepCount) != Species.activeByDay[id]) return;
+        // Move towards a source of food if found.
+        int newCell = findFood();
+        if(newCell < 0 || !Species.movesToFood[id]) {
+            // No food found, or the animal stays in its habitat - try to move to a free location.
+            newCell = Species.habitat[id] == Species.WATER ? field.freeWaterAdjacentCell(getCell())
+                                                            : field.freeGroundAdjacentCell(getCell());
+        }
+        // See if it was possible to move.
+        if(newCell >= 0) {
+            setLocation(field.locationOf(newCell));
+        }
+        else {
+            // Overcrowding.
+            setDead(CauseOfDeath.OVERCROWDING);
+        }
+    }
+    
+    /**
+     * Check whether or not this animal is going to give birth at this step.
+     * A female gives birth if there is a male of her species next to her,
+     * into the free adjacent cells of the birthplace of her species. The
+     * free cells are only looked for once she is known to give birth.
+     * @param newAnimals A list to return newly born animals.
+     */
+    private void giveBirth(List<FieldObject> newAnimals)
+    {
+        if(this.isMale) return; //males don't giveBirth.
+        int id = getSpeciesId();
+        Field field = getField();
+        if(!field.hasMaleNextTo(id, getCell())) return;
+        SimulationParameters parameters = field.getParameters();
+        int births = breed(Species.breedingAge[id], Species.breedingProbability(id, parameters),
+                           Species.maxLitterSize(id, parameters));
+        if(births == 0) return;
+        int[] free = freeBuffer();
+        int freeCount = Species.birthplace[id] == Species.WATER ? field.freeWaterAdjacentCells(getCell(), free)
+                                                                : field.freeGroundAdjacentCells(getCell(), free);
+        for(int b = 0; b < births && b < freeCount; b++) {
+            newAnimals.add(Species.create(id, false, ecosystem, field.locationOf(free[b])));
+        }
+    }
+    
+    /**
+     * Look for food adjacent to the current location: a live animal the
+     * species eats, which is killed, or a plant in a free cell, which is
+     * eaten. Only the first food found is eaten, and nothing is eaten if
+     * the animal is full. An animal that comes across a plant may also
+     * catch a disease from it.
+     * @return The cell where food was found, or -1 if it wasn't.
+     */
+    private int findFood()
+    {
+        if(this.foodLevel > MAX_FOOD) return -1;
+        int id = getSpeciesId();
+        int diet = id * Species.DIET_COLUMNS;
+        boolean hunts = Species.hunts[id];
+        int plantValue = Species.diet[diet + Species.PLANT];
+        Field field = getField();
+        int[] adjacent = adjacentBuffer();
+        int count = field.adjacentCells(getCell(), adjacent);
+        for(int i = 0; i < count; i++) {
+            int where = adjacent[i];
+            FieldObject occupant = (FieldObject) field.getObjectAt(where);
+            if(hunts && occupant != null && occupant.isAlive()) {
+                int value = Species.diet[diet + occupant.getSpeciesId()];
+                if(value > 0) {
+                    occupant.setDead(CauseOfDeath.PREDATION);
+                    foodLevel += value;
+                    return where;
+                }
+            }
+            if(plantValue > 0) {
+                boolean hasPlant = field.hasPlant(where);
+                //Given a chance, and upon contact with a plant, the animal might get sick.
+                if(hasPlant && !this.isSick && Species.plantSickness[id] > 0
+                        && rand().nextDouble() < Species.plantSickness[id]) {
+                    becomeSick();
+                }
+                if(hasPlant && occupant == null) {
+                    field.eatPlant(where);
+                    foodLevel += plantValue;
+                    return where;
+                }
+            }
+        }
+        return -1;
     }
     
     public boolean isSick() {
     	return this.isSick;
     }
     
-    protected void incrementAge(Integer max_age)
+    public boolean isMale() {
+    	return this.isMale;
+    }
+    
+    public int getStepsBeingSick() {
+    	if(store != null) {
+    		return store.sickSteps[entity];
+    	}
+    	return this.stepsBeingSick;
+    }
+    
+    public int getFoodLevel() {
+    	if(store != null) {
+    		return store.food[entity];
+    	}
+    	return this.foodLevel;
+    }
+    
+    /**
+     * @return The age of the animal in steps.
+     */
+    @Override
+    public int getAge() {
+    	if(store != null) {
+    		return store.age[entity];
+    	}
+    	return age;
+    }
+    
+    /**
+     * Move the animal, keeping the field's record of where the males are.
+     * @param newLocation The animal's new location.
+     */
+    @Override
+    protected void setLocation(Location newLocation)
+    {
+        if(isMale && location != null) {
+            field.setMale(getSpeciesId(), getCell(), false);
+        }
+        super.setLocation(newLocation);
+        if(isMale) {
+            field.setMale(getSpeciesId(), getCell(), true);
+        }
+        if(store != null) {
+            store.cell[entity] = getCell();
+        }
+    }
+    
+    /**
+     * Indicate that the animal is no longer alive, and that a male
+     * is no longer where he was. The animal goes to the pool of its
+     * ecosystem, to be born again.
+     * @param cause Why the animal died.
+     */
+    @Override
+    public void setDead(CauseOfDeath cause)
+    {
+        Field field = this.field;
+        boolean wasAlive = isAlive();
+        if(isMale && location != null) {
+            field.setMale(getSpeciesId(), getCell(), false);
+        }
+        if(store != null) {
+            detach();
+        }
+        super.setDead(cause);
+        if(wasAlive && ecosystem != null) {
+            ecosystem.getAnimalPool().died(this);
+        }
+    }
+    
+    /**
+     * Attach the animal to a store, which holds its age, food level and
+     * sickness from now on.
+     * @param store The store of the animal's ecosystem.
+     */
+    void attach(ActorStore store)
+    {
+        int age = getAge();
+        int foodLevel = getFoodLevel();
+        int stepsBeingSick = getStepsBeingSick();
+        this.store = store;
+        entity = store.add(this, getSpeciesId(), age, foodLevel, stepsBeingSick, getCell(), isMale, isSick);
+    }
+    
+    /**
+     * @return The animal's id in its store, while it is attached to one.
+     */
+    int entity()
+    {
+        return entity;
+    }
+    
+    /**
+     * Take the state of the animal back from its store, and free its id.
+     */
+    private void detach()
+    {
+        // Unless the store was cleared since.
+        if(store.animals[entity] == this) {
+            age = store.age[entity];
+            foodLevel = store.food[entity];
+            stepsBeingSick = store.sickSteps[entity];
+            store.remove(entity);
+        }
+        store = null;
+    }
+    
+    /**
+     * Overwrite the state of the animal, e.g. with the state saved
+     * in a checkpoint.
+     */
+    public void restoreState(int age, boolean isMale, boolean isSick, int stepsBeingSick, int foodLevel) {
+    	this.age = age;
+    	if(isMale != this.isMale) {
+    		getField().setMale(getSpeciesId(), getCell(), isMale);
+    	}
+    	this.isMale = isMale;
+    	if(isSick && !this.isSick && ecosystem != null) {
+    		ecosystem.getInfection().add(this);
+    	}
+    	this.isSick = isSick;
+    	this.stepsBeingSick = stepsBeingSick;
+    	this.foodLevel = foodLevel;
+    	if(store != null) {
+    		store.age[entity] = age;
+    		store.food[entity] = foodLevel;
+    		store.sickSteps[entity] = stepsBeingSick;
+    		store.flags[entity] = (store.flags[entity] & ~(ActorStore.MALE | ActorStore.SICK))
+    		                      | (isMale ? ActorStore.MALE : 0) | (isSick ? ActorStore.SICK : 0);
+    	}
+    }
+    
+    protected void incrementAge(int max_age)
     {
         age++;
         if(age > max_age) {
-            setDead();
+            setDead(CauseOfDeath.AGE);
         }
     }
     
@@ -51,7 +422,7 @@ public abstract class Animal extends FieldObject
     	if(this.isSick) {
         	this.stepsBeingSick++;
         	if(this.stepsBeingSick > MAX_STEPS_SICK) {
-        		setDead();
+        		setDead(CauseOfDeath.SICKNESS);
         	}
         }
     }
@@ -60,24 +431,26 @@ public abstract class Animal extends FieldObject
     {
         foodLevel--;
         if(foodLevel <= 0) {
-            setDead();
+            setDead(CauseOfDeath.HUNGER);
         }
     }
     
     /**
-     * If a random double is less than the probability of being infected, upon contact
-     * with a sick animal, this animal will become sick too.
+     * Make the animal sick, so that it passes the disease on from the
+     * next step, and record the infection in the event log.
      */
-    protected void checkIfGetsInfected() {
-		Field field = getField();
-		List<Location> free = field.getAdjacentLocations(getLocation());
-		for (Location where : free) {
-			FieldObject fieldObject = (FieldObject) field.getObjectAt(where);
-			if(fieldObject instanceof Animal && ((Animal)fieldObject).isSick() && rand.nextDouble() < this.getProbabilityGettingInfected()) {
-				this.isSick = true;
-				return;
-			}
-		}
-
-	}
+    protected void becomeSick() {
+    	this.isSick = true;
+    	if(store != null) {
+    		store.flags[entity] |= ActorStore.SICK;
+    	}
+    	if(ecosystem != null) {
+    		ecosystem.getInfection().add(this);
+    	}
+    	EventLog log = getField().getEventLog();
+    	if(log != null) {
+    		log.infected(getSpeciesId(), getCell());
+    	}
+    }
+    
 }
@@ -0,0 +1,126 @@
+package src.animal;
+
+import java.util.Arrays;
+
+import src.Population;
+
+/**
+ * Keeps the dead animals of an ecosystem for reuse, one stack per species, so
+ * that births bring a dead animal of the species back to life (see
+ * Animal.reinit) instead of allocating a new one, and the dead are not
+ * left to the garbage collector.
+ *
+ * A dead animal may still be referenced for the rest of its step: by the
+ * actor list until the dead are dropped, by the sick animals until the
+ * disease spreads. So the animals that die are only set aside, and become
+ * available when the simulator calls recycle, between two steps.
+ *
+ * Animals on several threads (see TiledStepEngine) may die and be born at
+ * the same time, so the pool is synchronized. Which dead animal a birth
+ * gets does not matter, as all of its state is reset.
+ */
+public final class AnimalPool
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    // The animals ready for reuse, and their number, by species.
+    private final Animal[][] free = new Animal[Population.MAX_SPECIES][];
+    private final int[] freeCount = new int[Population.MAX_SPECIES];
+    // The animals that died since the last recycle.
+    private Animal[] dead = new Animal[INITIAL_CAPACITY];
+    private int deadCount;
+    private boolean enabled = true;
+
+    /**
+     * Reuse dead animals or not. Runs are the same either way.
+     * @param enabled false to let every birth allocate a new animal.
+     */
+    public synchronized void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+        if(!enabled) {
+            clear();
+        }
+    }
+
+    /**
+     * Make the animals that died since the last call available for
+     * reuse. Only call this while no other object refers to them, i.e.
+     * between two steps.
+     */
+    public synchronized void recycle()
+    {
+        for(int i = 0; i < deadCount; i++) {
+            Animal animal = dead[i];
+            int id = animal.getSpeciesId();
+            Animal[] stack = free[id];
+            if(stack == null) {
+                stack = free[id] = new Animal[INITIAL_CAPACITY];
+            }
+            else if(freeCount[id] == stack.length) {
+                stack = free[id] = Arrays.copyOf(stack, stack.length * 2);
+            }
+            stack[freeCount[id]++] = animal;
+            dead[i] = null;
+        }
+        deadCount = 0;
+    }
+
+    /**
+     * Forget every animal, e.g. when the field is cleared.
+     */
+    public synchronized void clear()
+    {
+        Arrays.fill(dead, 0, deadCount, null);
+        deadCount = 0;
+        for(int id = 0; id < free.length; id++) {
+            if(free[id] != null) {
+                Arrays.fill(free[id], 0, freeCount[id], null);
+                freeCount[id] = 0;
+            }
+        }
+    }
+
+    /**
+     * @return The number of animals ready for reuse.
+     */
+    public synchronized int size()
+    {
+        int size = 0;
+        for(int count : freeCount) {
+            size += count;
+        }
+        return size;
+    }
+
+    /**
+     * Set aside an animal that has just died.
+     */
+    synchronized void died(Animal animal)
+    {
+        if(!enabled) {
+            return;
+        }
+        if(deadCount == dead.length) {
+            dead = Arrays.copyOf(dead, deadCount * 2);
+        }
+        dead[deadCount++] = animal;
+    }
+
+    /**
+     * @param speciesId The id of a species, see Population.
+     * @return A dead animal of the species to bring back to life, or null
+     *         if there is none.
+     */
+    synchronized Animal take(int speciesId)
+    {
+        int count = freeCount[speciesId];
+        if(count == 0) {
+            return null;
+        }
+        Animal animal = free[speciesId][--count];
+        free[speciesId][count] = null;
+        freeCount[speciesId] = count;
+        return animal;
+    }
+}
@@ -0,0 +1,9 @@
+package src.animal;
+
+/**
+ * Why an animal died, as recorded in the event log.
+ */
+public enum CauseOfDeath
+{
+    AGE, HUNGER, SICKNESS, OVERCROWDING, PREDATION
+}
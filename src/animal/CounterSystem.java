@@ -0,0 +1,74 @@
+package src.animal;
+
+/**
+ * The ageing, hunger and sickness systems of the EcsStepEngine: advance
+ * the counters of every entity of an ActorStore by one step and tell
+ * which entities reach a limit. Only the counters change; the caller
+ * lets the marked entities die.
+ *
+ * The updates are the same for every entity, so they can run several
+ * entities at a time with SIMD instructions. The vectorised system uses
+ * the incubating Vector API, which is only there when the JVM is started
+ * with --add-modules jdk.incubator.vector; otherwise the scalar system is
+ * used. Both give the same counters and the same deaths.
+ *
+ * The vectorised system, VectorCounters, is not in src/ but in
+ * simulation/src/vector/java, and only the compile-vector execution of
+ * the Maven build compiles it. BlueJ and the Eclipse project compile
+ * src/ alone, so there the scalar system is used even with the module
+ * added, and nothing says so.
+ */
+public interface CounterSystem
+{
+    /**
+     * Advance the counters of every living entity: its age and, if it
+     * is sick and its species can die of it, its steps being sick go up
+     * by one and its food level goes down by one. Newborns count as born
+     * before this step from now on.
+     * @param store The entities.
+     * @param deaths Set to why each entity dies: the ordinal of the
+     *               CauseOfDeath plus one (age before hunger before
+     *               sickness), or 0 if it lives on. At least as long as
+     *               the store's arrays.
+     * @return true if any entity dies.
+     */
+    boolean advance(ActorStore store, int[] deaths);
+
+    /**
+     * @return The vectorised system if the Vector API is available, the
+     *         scalar one if not.
+     */
+    static CounterSystem create()
+    {
+        CounterSystem vectorised = vectorised();
+        return vectorised != null ? vectorised : scalar();
+    }
+
+    /**
+     * @return The system that updates one entity at a time.
+     */
+    static CounterSystem scalar()
+    {
+        return new ScalarCounters();
+    }
+
+    /**
+     * @return The system that updates several entities at a time with
+     *         the Vector API, or null if the JVM does not have it or the
+     *         class was not compiled (see simulation/src/vector).
+     */
+    static CounterSystem vectorised()
+    {
+        if(ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            // Only loaded by name: it is compiled apart from src/, with the module.
+            return (CounterSystem) Class.forName("src.animal.VectorCounters")
+                                        .getDeclaredConstructor().newInstance();
+        }
+        catch(ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package src.animal;
+
+import src.Field;
+
+/**
+ * What the animals of one simulation share besides their field: the
+ * sick animals, which the disease spreads from once a step (see
+ * Infection), the struct of arrays state the EcsStepEngine steps them in
+ * (see ActorStore), and the dead animals kept to be born again (see
+ * AnimalPool). The field itself only holds the grid.
+ *
+ * An animal belongs to the ecosystem it was created in by Species.create,
+ * and its newborns belong to the same one.
+ */
+public final class Ecosystem
+{
+    private final Field field;
+    private final Infection infection = new Infection();
+    private final ActorStore actorStore = new ActorStore();
+    private final AnimalPool animalPool = new AnimalPool();
+
+    /**
+     * Create an empty ecosystem on a field.
+     * @param field The field the animals live in.
+     */
+    public Ecosystem(Field field)
+    {
+        this.field = field;
+    }
+
+    /**
+     * @return The field the animals live in.
+     */
+    public Field getField()
+    {
+        return field;
+    }
+
+    /**
+     * @return The sick animals.
+     */
+    public Infection getInfection()
+    {
+        return infection;
+    }
+
+    /**
+     * @return The struct of arrays state of the animals, see EcsStepEngine.
+     */
+    public ActorStore getActorStore()
+    {
+        return actorStore;
+    }
+
+    /**
+     * @return The dead animals kept for reuse.
+     */
+    public AnimalPool getAnimalPool()
+    {
+        return animalPool;
+    }
+
+    /**
+     * Forget every animal, e.g. when the field is cleared.
+     */
+    public void clear()
+    {
+        infection.clear();
+        actorStore.clear();
+        animalPool.clear();
+    }
+}
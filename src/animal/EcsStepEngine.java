@@ -0,0 +1,251 @@
+package src.animal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import src.ActorList;
+import src.Field;
+import src.RandomStreams;
+import src.Randomizer;
+import src.SimulationParameters;
+import src.StepEngine;
+
+/**
+ * Steps the animals entity-component-system style. Their state lives in
+ * the ActorStore of their ecosystem, in parallel primitive arrays, and each
+ * step runs systems as loops over those arrays instead of calling act
+ * on every animal:
+ *
+ * - ageing, hunger and sickness advance the counters of every entity in
+ *   one linear pass over the arrays (see CounterSystem, vectorised where
+ *   the JVM allows), marking the entities that die, which then die in id
+ *   order;
+ * - breeding, feeding and movement then run for each living entity, with
+ *   the rules of Animal.act, in the order of the actor list, which the
+ *   engine keeps as an array of ids. Checkpoints save that order, so a
+ *   resumed run is the same as one that never stopped.
+ *
+ * The loops work on the arrays. They touch the Animal objects, which
+ * stay in the field as a facade, only when something happens to them (a
+ * birth, a death, a move, a meal), and allocate nothing but the
+ * newborns.
+ *
+ * Because every animal ages before any animal moves, runs differ from
+ * those of the other engines, but follow the same rules. With per-actor
+ * random streams each entity draws from the stream of its cell.
+ */
+public class EcsStepEngine implements StepEngine
+{
+    private static final CauseOfDeath[] CAUSES = CauseOfDeath.values();
+
+    // The newborns of the current step.
+    private final List<FieldObject> newborns = new ArrayList<>();
+    private final CounterSystem counters;
+    // Why each entity dies in the counter pass: the ordinal of the
+    // cause plus one, or 0 if it lives on.
+    private int[] deaths = new int[0];
+    // The ids of the entities in the order of the actor list, and the
+    // number of times the store had been cleared when it was built.
+    private int[] order = new int[0];
+    private int orderSize;
+    private int orderClears = -1;
+
+    /**
+     * Create an engine that advances the counters with the Vector API if
+     * the JVM has it.
+     */
+    public EcsStepEngine()
+    {
+        this(CounterSystem.create());
+    }
+
+    /**
+     * Create an engine that advances the counters with the given system.
+     * @param counters E.g. CounterSystem.scalar().
+     */
+    public EcsStepEngine(CounterSystem counters)
+    {
+        this.counters = counters;
+    }
+
+    public void actAll(ActorList actors, Ecosystem ecosystem, int step)
+    {
+        ActorStore store = ecosystem.getActorStore();
+        if(!store.isActive()) {
+            store.activate(actors);
+            orderClears = -1;
+        }
+        if(orderClears != store.clears()) {
+            // The animals were replaced, e.g. by a reset.
+            orderSize = 0;
+            for(FieldObject actor : actors) {
+                addToOrder(actor);
+            }
+            orderClears = store.clears();
+        }
+        advanceCounters(store);
+        act(store, ecosystem, step);
+
+        actors.addAll(newborns);
+        newborns.clear();
+        actors.removeDead();
+        orderSize = 0;
+        for(int i = 0; i < actors.size(); i++) {
+            addToOrder(actors.get(i));
+        }
+    }
+
+    /**
+     * Append the id of a living actor to the order.
+     */
+    private void addToOrder(FieldObject actor)
+    {
+        if(actor.isAlive() && actor instanceof Animal) {
+            if(orderSize == order.length) {
+                order = Arrays.copyOf(order, Math.max(64, orderSize * 2));
+            }
+            order[orderSize++] = ((Animal) actor).entity();
+        }
+    }
+
+    /**
+     * The ageing, hunger and sickness systems: advance the counters of
+     * every entity, and let those that reach a limit die, of the first
+     * limit in that order. Last step's newborns act from now on.
+     */
+    private void advanceCounters(ActorStore store)
+    {
+        if(deaths.length < store.limit()) {
+            deaths = new int[store.animals.length];
+        }
+        if(counters.advance(store, deaths)) {
+            int limit = store.limit();
+            for(int e = 0; e < limit; e++) {
+                if(deaths[e] != 0) {
+                    store.animals[e].setDead(CAUSES[deaths[e] - 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * The breeding, feeding and movement systems: let every living entity
+     * that was not born in this step give birth, and, while its species
+     * is awake, look for food and move.
+     */
+    private void act(ActorStore store, Ecosystem ecosystem, int step)
+    {
+        Field field = ecosystem.getField();
+        RandomStreams streams = field.getRandomStreams();
+        for(int i = 0; i < orderSize; i++) {
+            int e = order[i];
+            // Killed earlier in this step? The id may even be a newborn's by now.
+            if((store.flags[e] & (ActorStore.ALIVE | ActorStore.NEWBORN)) != ActorStore.ALIVE) {
+                continue;
+            }
+            if(streams != null) {
+                streams.enter(step, store.cell[e]);
+            }
+            int id = store.species[e];
+            giveBirth(store, e, ecosystem);
+            if(field.isDayTime(step) == Species.activeByDay[id]) {
+                move(store, e, field);
+            }
+        }
+        RandomStreams.leave();
+    }
+
+    /**
+     * A female gives birth if there is a male of her species next to her,
+     * as in Animal.giveBirth.
+     */
+    private void giveBirth(ActorStore store, int e, Ecosystem ecosystem)
+    {
+        Field field = ecosystem.getField();
+        if((store.flags[e] & ActorStore.MALE) != 0) {
+            return;
+        }
+        int id = store.species[e];
+        int cell = store.cell[e];
+        if(!field.hasMaleNextTo(id, cell) || store.age[e] < Species.breedingAge[id]) {
+            return;
+        }
+        SimulationParameters parameters = field.getParameters();
+        if(Randomizer.current().nextDouble() > Species.breedingProbability(id, parameters)) {
+            return;
+        }
+        int births = Randomizer.current().nextInt(Species.maxLitterSize(id, parameters)) + 1;
+        int[] free = FieldObject.freeBuffer();
+        int freeCount = Species.birthplace[id] == Species.WATER ? field.freeWaterAdjacentCells(cell, free)
+                                                                : field.freeGroundAdjacentCells(cell, free);
+        for(int b = 0; b < births && b < freeCount; b++) {
+            // Attached to the store, as a newborn, as it joins the ecosystem.
+            newborns.add(Species.create(id, false, ecosystem, field.locationOf(free[b])));
+        }
+    }
+
+    /**
+     * Move towards food if found, as in Animal.act, or else to a free
+     * cell of the habitat; die of overcrowding if there is none.
+     */
+    private void move(ActorStore store, int e, Field field)
+    {
+        int id = store.species[e];
+        int cell = store.cell[e];
+        int newCell = findFood(store, e, field);
+        if(newCell < 0 || !Species.movesToFood[id]) {
+            newCell = Species.habitat[id] == Species.WATER ? field.freeWaterAdjacentCell(cell)
+                                                            : field.freeGroundAdjacentCell(cell);
+        }
+        Animal animal = store.animals[e];
+        if(newCell >= 0) {
+            animal.setLocation(field.locationOf(newCell));
+        }
+        else {
+            animal.setDead(CauseOfDeath.OVERCROWDING);
+        }
+    }
+
+    /**
+     * Eat the first food found next to the entity, as in Animal.findFood.
+     * @return The cell where food was found, or -1 if it wasn't.
+     */
+    private int findFood(ActorStore store, int e, Field field)
+    {
+        if(store.food[e] > Animal.MAX_FOOD) {
+            return -1;
+        }
+        int id = store.species[e];
+        int diet = id * Species.DIET_COLUMNS;
+        boolean hunts = Species.hunts[id];
+        int plantValue = Species.diet[diet + Species.PLANT];
+        int[] adjacent = FieldObject.adjacentBuffer();
+        int count = field.adjacentCells(store.cell[e], adjacent);
+        for(int i = 0; i < count; i++) {
+            int where = adjacent[i];
+            FieldObject occupant = (FieldObject) field.getObjectAt(where);
+            if(hunts && occupant != null && occupant.isAlive()) {
+                int value = Species.diet[diet + occupant.getSpeciesId()];
+                if(value > 0) {
+                    occupant.setDead(CauseOfDeath.PREDATION);
+                    store.food[e] += value;
+                    return where;
+                }
+            }
+            if(plantValue > 0) {
+                boolean hasPlant = field.hasPlant(where);
+                if(hasPlant && (store.flags[e] & ActorStore.SICK) == 0 && Species.plantSickness[id] > 0
+                        && Randomizer.current().nextDouble() < Species.plantSickness[id]) {
+                    store.animals[e].becomeSick();
+                }
+                if(hasPlant && occupant == null) {
+                    field.eatPlant(where);
+                    store.food[e] += plantValue;
+                    return where;
+                }
+            }
+        }
+        return -1;
+    }
+}
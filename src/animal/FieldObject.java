@@ -3,10 +3,10 @@ package src.animal;
 import java.util.List;
 import java.util.Random;
 
+import src.EventLog;
 import src.Field;
 import src.Location;
 import src.Randomizer;
-import src.animal.plants.Plant;
 
 /**
  * A class that details a common properties of field objects.
@@ -24,12 +24,48 @@ public abstract class FieldObject {
     protected int age;	
     // The field object's position in the field.
     protected Location location;
-    private static final Random rand = Randomizer.getRandom();
+    // The id of the object's species, see Species.
+    private final int speciesId;
+    // Scratch buffers for neighbour cell indices. Each thread has its own
+    // pair so that scanning a neighbourhood never allocates.
+    private static final ThreadLocal<int[][]> neighbourBuffers = ThreadLocal.withInitial(() -> new int[2][8]);
     
+    /**
+     * Create an object of the species whose definition names its class.
+     * @throws IllegalStateException If no species is defined with the class.
+     */
     public FieldObject(Field field, Location location) {
+        speciesId = Species.idOf(getClass());
+        if(speciesId < 0) {
+            throw new IllegalStateException(getClass().getName() + " is not defined in the species definitions");
+        }
+        enter(field, location);
+    }
+    
+    /**
+     * Create an object of a species given by its id, whatever its class.
+     * @param speciesId The id of a defined species, see Species.
+     */
+    protected FieldObject(int speciesId, Field field, Location location) {
+        this.speciesId = speciesId;
+        enter(field, location);
+    }
+    
+    /**
+     * Bring the object to life at the location: count it as born and
+     * place it in the field. Called by the constructor, and again for an
+     * object that is reused after it died.
+     */
+    protected void enter(Field field, Location location) {
     	alive = true;
         this.field = field;
+        age = 0;
+        field.getPopulation().born(speciesId);
         setLocation(location);
+        EventLog log = field.getEventLog();
+        if(log != null) {
+            log.born(speciesId, getCell());
+        }
     }
     
     /**
@@ -48,6 +84,14 @@ public abstract class FieldObject {
         return alive;
     }
     
+    /**
+     * @return The age of the object in steps.
+     */
+    public int getAge()
+    {
+        return age;
+    }
+    
     /**
      * Return the animal's field.
      * @return The animal's field.
@@ -57,16 +101,60 @@ public abstract class FieldObject {
         return field;
     }
     
+    /**
+     * Return the generator to draw from. This is the stream of the
+     * acting object when the simulation uses per-actor streams (see
+     * RandomStreams), otherwise the shared generator.
+     * @return A random object.
+     */
+    protected static Random rand()
+    {
+        return Randomizer.current();
+    }
+    
+    /**
+     * @return A buffer for the cells adjacent to this object's location.
+     */
+    protected static int[] adjacentBuffer()
+    {
+        return neighbourBuffers.get()[0];
+    }
+    
+    /**
+     * @return A second buffer, for free cells found while the first one is in use.
+     */
+    protected static int[] freeBuffer()
+    {
+        return neighbourBuffers.get()[1];
+    }
+    
+    /**
+     * @return The id of the object's species, see Species.
+     */
+    public int getSpeciesId()
+    {
+        return speciesId;
+    }
+    
+    /**
+     * Return the index of the cell this object is in.
+     * @return The index of the object's cell in its field.
+     */
+    protected int getCell()
+    {
+        return field.indexOf(location);
+    }
+    
     /**
      * Generate a number representing the number of births,
      * if it can breed.
      * @return The number of births (may be zero).
      */
-    protected int breed(Integer breeding_age, double breeding_probability, int max_litter_size)
+    protected int breed(int breeding_age, double breeding_probability, int max_litter_size)
     {
         int births = 0;
-        if(canBreed(breeding_age) && rand.nextDouble() <= breeding_probability) {
-            births = rand.nextInt(max_litter_size) + 1;
+        if(canBreed(breeding_age) && rand().nextDouble() <= breeding_probability) {
+            births = rand().nextInt(max_litter_size) + 1;
         }
         return births;
     }
@@ -76,19 +164,29 @@ public abstract class FieldObject {
     /**
      * A fox can breed if it has reached the breeding age.
      */
-    private boolean canBreed(Integer breeding_age)
+    private boolean canBreed(int breeding_age)
     {
         return age >= breeding_age;
     }
     
     /**
      * Indicate that the animal is no longer alive.
-     * It is removed from the field.
+     * It is removed from the field and from its population.
+     * Moving does not change the population, so only births
+     * and deaths are counted.
+     * @param cause Why the animal died.
      */
-    public void setDead()
+    public void setDead(CauseOfDeath cause)
     {
+        if(alive && field != null) {
+            field.getPopulation().died(speciesId);
+        }
         alive = false;
         if(location != null) {
+            EventLog log = field.getEventLog();
+            if(log != null) {
+                log.died(speciesId, getCell(), cause);
+            }
             field.clearAnimal(location);
             location = null;
             field = null;
@@ -99,7 +197,7 @@ public abstract class FieldObject {
      * Return the animal's location.
      * @return The animal's location.
      */
-    protected Location getLocation()
+    public Location getLocation()
     {
         return location;
     }
@@ -110,8 +208,12 @@ public abstract class FieldObject {
      */
     protected void setLocation(Location newLocation)
     {
-        if(location != null && !(this instanceof Plant)) {
+        if(location != null) {
             field.clearAnimal(location);
+            EventLog log = field.getEventLog();
+            if(log != null) {
+                log.moved(speciesId, getCell(), field.indexOf(newLocation));
+            }
         }
         location = newLocation;
         field.place(this, newLocation);
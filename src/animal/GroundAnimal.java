@@ -10,8 +10,8 @@ import src.Location;
 
 public abstract class GroundAnimal extends Animal {
 	
-	public GroundAnimal(Field field, Location location) {
-		super(field, location);
+	public GroundAnimal(boolean randomAge, Field field, Location location) {
+		super(randomAge, field, location);
 	}
 
 	protected static final String FIELD_TYPE = "Ground";
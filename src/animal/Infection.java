@@ -0,0 +1,150 @@
+package src.animal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import src.Field;
+
+/**
+ * Keeps track of the sick animals of an ecosystem and spreads their disease.
+ * Rather than every healthy animal looking for sick neighbours in its own
+ * turn, the disease spreads in one pass per step, after all the animals
+ * have acted. A healthy animal next to n sick ones catches it with
+ * probability 1 - (1 - p)^n, p being the probability of its own species
+ * (see Animal.getProbabilityGettingInfected), as before.
+ *
+ * While the sick are fewer than the healthy, each sick animal passes the
+ * disease on to its healthy neighbours, so the pass costs as much as
+ * there are sick animals. Once most animals are sick - species that do
+ * not die of their sickness keep it for life - the healthy animals look
+ * for sick neighbours instead. Either way the pass only visits the
+ * smaller of the two groups.
+ *
+ * Animals register themselves when they fall sick. Dead animals are
+ * dropped the next time the disease spreads.
+ */
+public class Infection
+{
+    // Orders the sick animals by their cell, so the disease spreads the
+    // same way whatever order they fell sick in.
+    private static final Comparator<Animal> BY_CELL = Comparator.comparingInt(Animal::getCell);
+
+    // The animals that are sick, and maybe some that have died since.
+    private final List<Animal> sick = new ArrayList<>();
+    // The healthy animals with sick neighbours, while the healthy look for them.
+    private final List<Animal> exposed = new ArrayList<>();
+
+    /**
+     * Record that an animal has fallen sick. Animals acting on several
+     * threads may fall sick at the same time.
+     * @param animal The sick animal.
+     */
+    synchronized void add(Animal animal)
+    {
+        sick.add(animal);
+    }
+
+    /**
+     * @return The number of sick animals, counting those that died since the disease last spread.
+     */
+    public synchronized int size()
+    {
+        return sick.size();
+    }
+
+    /**
+     * Forget every sick animal, e.g. when the field is cleared.
+     */
+    public synchronized void clear()
+    {
+        sick.clear();
+    }
+
+    /**
+     * Let every sick animal pass the disease on to its neighbours, once.
+     * Animals that fall sick now only pass it on from the next step.
+     * Random numbers are drawn from Randomizer.current().
+     * @param field The field the animals live in.
+     * @param actors The animals of the field. Dead ones are skipped.
+     */
+    public synchronized void spread(Field field, List<? extends FieldObject> actors)
+    {
+        sick.removeIf(animal -> !animal.isAlive());
+        if(sick.isEmpty()) {
+            return;
+        }
+        if(sick.size() <= actors.size() - sick.size()) {
+            spreadFromSick(field);
+        }
+        else {
+            spreadToHealthy(field, actors);
+        }
+    }
+
+    /**
+     * Let each sick animal infect its healthy neighbours.
+     */
+    private void spreadFromSick(Field field)
+    {
+        sick.sort(BY_CELL);
+        Animal[] spreading = sick.toArray(new Animal[0]);
+        int[] adjacent = FieldObject.adjacentBuffer();
+        for(Animal animal : spreading) {
+            int count = field.neighbourCells(animal.getCell(), adjacent);
+            for(int i = 0; i < count; i++) {
+                Object neighbour = field.getObjectAt(adjacent[i]);
+                if(neighbour instanceof Animal) {
+                    Animal healthy = (Animal) neighbour;
+                    if(!healthy.isSick()
+                            && FieldObject.rand().nextDouble() < healthy.getProbabilityGettingInfected()) {
+                        healthy.becomeSick();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Let each healthy animal catch the disease from its sick neighbours,
+     * in the order of the actors. All of them roll before any falls sick.
+     */
+    private void spreadToHealthy(Field field, List<? extends FieldObject> actors)
+    {
+        int[] adjacent = FieldObject.adjacentBuffer();
+        for(FieldObject actor : actors) {
+            if(actor instanceof Animal && actor.isAlive() && !((Animal) actor).isSick()
+                    && sickNeighbours((Animal) actor, field, adjacent) > 0) {
+                exposed.add((Animal) actor);
+            }
+        }
+        // Keep the animals that catch the disease at the front of the list.
+        int infected = 0;
+        for(Animal healthy : exposed) {
+            double p = healthy.getProbabilityGettingInfected();
+            if(FieldObject.rand().nextDouble() < 1 - Math.pow(1 - p, sickNeighbours(healthy, field, adjacent))) {
+                exposed.set(infected++, healthy);
+            }
+        }
+        for(int i = 0; i < infected; i++) {
+            exposed.get(i).becomeSick();
+        }
+        exposed.clear();
+    }
+
+    /**
+     * @return The number of sick animals next to the given one.
+     */
+    private static int sickNeighbours(Animal animal, Field field, int[] adjacent)
+    {
+        int count = field.neighbourCells(animal.getCell(), adjacent);
+        int sick = 0;
+        for(int i = 0; i < count; i++) {
+            Object neighbour = field.getObjectAt(adjacent[i]);
+            if(neighbour instanceof Animal && ((Animal) neighbour).isSick()) {
+                sick++;
+            }
+        }
+        return sick;
+    }
+}
@@ -10,9 +10,9 @@ import src.Location;
 
 public abstract class Predator extends Animal {
 	
-	public Predator	(Field field, Location location)
+	public Predator	(boolean randomAge, Field field, Location location)
     {
-		super(field, location);
+		super(randomAge, field, location);
     }
 
 }
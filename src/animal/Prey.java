@@ -10,9 +10,9 @@ import src.Location;
 
 public abstract class Prey extends Animal {
 	
-	public Prey	(Field field, Location location)
+	public Prey	(boolean randomAge, Field field, Location location)
     {
-		super(field, location);
+		super(randomAge, field, location);
     }
 
 }
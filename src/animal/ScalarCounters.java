@@ -0,0 +1,52 @@
+package src.animal;
+
+/**
+ * The counter system that updates one entity at a time.
+ */
+class ScalarCounters implements CounterSystem
+{
+    private static final int AGE = CauseOfDeath.AGE.ordinal() + 1;
+    private static final int HUNGER = CauseOfDeath.HUNGER.ordinal() + 1;
+    private static final int SICKNESS = CauseOfDeath.SICKNESS.ordinal() + 1;
+    private static final int TRACKED_SICK = ActorStore.SICK | ActorStore.TRACKS_SICKNESS;
+
+    public boolean advance(ActorStore store, int[] deaths)
+    {
+        return advance(store, deaths, 0);
+    }
+
+    /**
+     * Advance the counters of the entities from the given id on.
+     */
+    static boolean advance(ActorStore store, int[] deaths, int from)
+    {
+        int limit = store.limit();
+        int[] age = store.age;
+        int[] maxAge = store.maxAge;
+        int[] food = store.food;
+        int[] sickSteps = store.sickSteps;
+        int[] flags = store.flags;
+        boolean dying = false;
+        for(int e = from; e < limit; e++) {
+            int flag = flags[e];
+            if((flag & ActorStore.ALIVE) == 0) {
+                deaths[e] = 0;
+                continue;
+            }
+            flags[e] = flag & ~ActorStore.NEWBORN;
+            int cause = 0;
+            if((flag & TRACKED_SICK) == TRACKED_SICK && ++sickSteps[e] > Animal.MAX_STEPS_SICK) {
+                cause = SICKNESS;
+            }
+            if(--food[e] <= 0) {
+                cause = HUNGER;
+            }
+            if(++age[e] > maxAge[e]) {
+                cause = AGE;
+            }
+            deaths[e] = cause;
+            dying |= cause != 0;
+        }
+        return dying;
+    }
+}
@@ -0,0 +1,386 @@
+package src.animal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import src.Field;
+import src.Location;
+import src.Parameter;
+import src.Population;
+import src.SimulationParameters;
+
+/**
+ * The definitions of the species of the simulation: how long they live,
+ * when and how much they breed, where they live and are born, when they
+ * are awake, how they catch diseases and what they eat. The definitions
+ * are read from species.properties next to this class, or from the file
+ * named by the system property src.species, and kept in primitive tables
+ * indexed by the species id (see Population). Animal.act reads them, so
+ * every species runs the same code and a species differs from another
+ * only in its row of the tables.
+ *
+ * A species is known by its name and id, not by a class: its animals
+ * are plain Animals unless the definition names a class for them, which
+ * then only needs a constructor taking (boolean randomAge, Field field,
+ * Location location) that passes its arguments on.
+ *
+ * Breeding and infection probabilities, litter sizes and creation
+ * probabilities are given in the definitions too. Each of them gets a
+ * Parameter as the definitions are read (e.g. lionBreedingProbability),
+ * and a value set for it in the SimulationParameters of the field
+ * overrides the definition.
+ */
+public final class Species
+{
+    // The floor types a species may live, be born and move on.
+    static final byte GROUND = 0;
+    static final byte WATER = 1;
+    // The column of the diet table for plants; the others are species ids.
+    static final int PLANT = Population.MAX_SPECIES;
+    static final int DIET_COLUMNS = PLANT + 1;
+
+    private static final int MAX_SPECIES = Population.MAX_SPECIES;
+
+    // The name of each species, and the constructor of its class, or null for Animal.
+    private static final String[] names = new String[MAX_SPECIES];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Constructor<? extends Animal>[] constructors = new Constructor[MAX_SPECIES];
+    // The species of each class named in the definitions.
+    private static final Map<Class<?>, Integer> classes = new HashMap<>();
+    // The ages (in steps) at which animals of a species die and can breed.
+    static final int[] maxAge = new int[MAX_SPECIES];
+    static final int[] breedingAge = new int[MAX_SPECIES];
+    // The food level of a newborn, and the bound of the random food level
+    // of the animals created when the field is populated.
+    static final int[] newbornFood = new int[MAX_SPECIES];
+    static final int[] initialFood = new int[MAX_SPECIES];
+    // The share of the animals created when the field is populated that
+    // are sick, and the bound of how long they have been sick already.
+    static final double[] initialSickness = new double[MAX_SPECIES];
+    static final int[] initialSickSteps = new int[MAX_SPECIES];
+    // Where a species lives and moves, and where its young are born.
+    static final byte[] habitat = new byte[MAX_SPECIES];
+    static final byte[] birthplace = new byte[MAX_SPECIES];
+    // Whether a species is awake by day or at night.
+    static final boolean[] activeByDay = new boolean[MAX_SPECIES];
+    // Whether a species moves to where it found food, or elsewhere in its habitat.
+    static final boolean[] movesToFood = new boolean[MAX_SPECIES];
+    // Whether a sick animal of the species dies after Animal.MAX_STEPS_SICK steps.
+    static final boolean[] tracksSickness = new boolean[MAX_SPECIES];
+    // The chance of catching a disease from a plant it comes across.
+    static final double[] plantSickness = new double[MAX_SPECIES];
+    // Whether a species eats other animals.
+    static final boolean[] hunts = new boolean[MAX_SPECIES];
+    // The food value of each species and of plants to each species,
+    // at eater * DIET_COLUMNS + food; zero if it is not eaten.
+    static final int[] diet = new int[MAX_SPECIES * DIET_COLUMNS];
+    // The parameter that may override each tunable value, or null if there is none.
+    private static final Parameter[] breedingParameter = new Parameter[MAX_SPECIES];
+    private static final Parameter[] litterParameter = new Parameter[MAX_SPECIES];
+    private static final Parameter[] infectionParameter = new Parameter[MAX_SPECIES];
+    private static final Parameter[] creationParameter = new Parameter[MAX_SPECIES];
+    private static final double[] breedingProbability = new double[MAX_SPECIES];
+    private static final double[] maxLitterSize = new double[MAX_SPECIES];
+    private static final double[] infectionProbability = new double[MAX_SPECIES];
+    private static final double[] creationProbability = new double[MAX_SPECIES];
+    // The colour of each species in the view, as RGB, or -1 for none.
+    private static final int[] colours = new int[MAX_SPECIES];
+    // The ids of the species, in the order they are defined.
+    private static final int[] ids = define(readDefinitions());
+
+    private Species()
+    {
+    }
+
+    /**
+     * @return The ids of the species, in the order they are defined.
+     * When the field is populated, the species of a floor type are tried
+     * in this order.
+     */
+    public static int[] ids()
+    {
+        return ids.clone();
+    }
+
+    /**
+     * @param id The id of a species.
+     * @return Whether the species is defined.
+     */
+    public static boolean isDefined(int id)
+    {
+        return id >= 0 && id < MAX_SPECIES && names[id] != null;
+    }
+
+    /**
+     * @param type A class of animal.
+     * @return The id of the species the definitions give the class to,
+     *         or -1 if there is none.
+     */
+    static int idOf(Class<?> type)
+    {
+        Integer id = classes.get(type);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @param id The id of the species.
+     * @return The name of the species, e.g. Lion.
+     */
+    public static String getName(int id)
+    {
+        return names[id];
+    }
+
+    /**
+     * @param id The id of the species.
+     * @return Whether the species lives in water rather than on the ground.
+     */
+    public static boolean livesInWater(int id)
+    {
+        return habitat[id] == WATER;
+    }
+
+    /**
+     * @param id The id of the species.
+     * @return The colour of the species, as RGB, or -1 if it has none.
+     */
+    public static int getColour(int id)
+    {
+        return colours[id];
+    }
+
+    /**
+     * @param id The id of the species.
+     * @param parameters The parameters of the simulation.
+     * @return The probability that a cell of its habitat starts with an animal of the species.
+     */
+    public static double creationProbability(int id, SimulationParameters parameters)
+    {
+        return tunable(id, creationParameter, creationProbability, parameters);
+    }
+
+    static double breedingProbability(int id, SimulationParameters parameters)
+    {
+        return tunable(id, breedingParameter, breedingProbability, parameters);
+    }
+
+    static int maxLitterSize(int id, SimulationParameters parameters)
+    {
+        return (int) tunable(id, litterParameter, maxLitterSize, parameters);
+    }
+
+    static double infectionProbability(int id, SimulationParameters parameters)
+    {
+        return tunable(id, infectionParameter, infectionProbability, parameters);
+    }
+
+    /**
+     * Create an animal of a species in an ecosystem, reusing a dead one
+     * from its pool if there is one (see AnimalPool).
+     * @param id The id of the species.
+     * @param randomAge If true, the animal has a random age, food level and sickness; otherwise it is a newborn.
+     * @param ecosystem The ecosystem the animal belongs to.
+     * @param location Where the animal is in the ecosystem's field.
+     * @return The animal.
+     */
+    public static Animal create(int id, boolean randomAge, Ecosystem ecosystem, Location location)
+    {
+        Animal animal = ecosystem.getAnimalPool().take(id);
+        if(animal != null) {
+            animal.reinit(randomAge, ecosystem.getField(), location);
+        }
+        else {
+            animal = construct(id, randomAge, ecosystem.getField(), location);
+        }
+        animal.join(ecosystem);
+        return animal;
+    }
+
+    private static Animal construct(int id, boolean randomAge, Field field, Location location)
+    {
+        if(constructors[id] == null) {
+            return new Animal(id, randomAge, field, location);
+        }
+        try {
+            return constructors[id].newInstance(randomAge, field, location);
+        }
+        catch(InvocationTargetException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Cannot create a " + names[id], e.getCause());
+        }
+        catch(ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create a " + names[id], e);
+        }
+    }
+
+    /**
+     * @return The value of the parameter if it is set, else the value in the definitions.
+     */
+    private static double tunable(int id, Parameter[] parameter, double[] value, SimulationParameters parameters)
+    {
+        double override = parameters.get(parameter[id]);
+        return Double.isNaN(override) ? value[id] : override;
+    }
+
+    private static Properties readDefinitions()
+    {
+        Properties definitions = new Properties();
+        String file = System.getProperty("src.species");
+        try(InputStream in = file != null ? Files.newInputStream(Paths.get(file))
+                                          : Species.class.getResourceAsStream("species.properties")) {
+            if(in == null) {
+                throw new IllegalStateException("species.properties is not on the class path");
+            }
+            definitions.load(in);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return definitions;
+    }
+
+    /**
+     * Fill the tables from the definitions.
+     * @return The ids of the species defined.
+     */
+    private static int[] define(Properties definitions)
+    {
+        String[] listed = required(definitions, "species").split(",");
+        int[] defined = new int[listed.length];
+        for(int i = 0; i < listed.length; i++) {
+            String name = listed[i].trim();
+            int id = Population.idOf(name);
+            if(names[id] != null) {
+                throw new IllegalStateException("Species " + name + " is listed twice");
+            }
+            defined[i] = id;
+            names[id] = name;
+            String className = definitions.getProperty(name + ".class");
+            if(className != null) {
+                defineClass(id, name, className.trim());
+            }
+            maxAge[id] = days(required(definitions, name + ".maxAge"));
+            breedingAge[id] = days(required(definitions, name + ".breedingAge"));
+            newbornFood[id] = days(required(definitions, name + ".newbornFood"));
+            initialFood[id] = days(required(definitions, name + ".initialFood"));
+            initialSickness[id] = Double.parseDouble(definitions.getProperty(name + ".initialSickness", "0"));
+            initialSickSteps[id] = Integer.parseInt(definitions.getProperty(name + ".initialSickSteps", "0"));
+            habitat[id] = floor(definitions.getProperty(name + ".habitat", "ground"));
+            birthplace[id] = floor(definitions.getProperty(name + ".birthplace", definitions.getProperty(name + ".habitat", "ground")));
+            activeByDay[id] = period(definitions.getProperty(name + ".active", "day"));
+            movesToFood[id] = Boolean.parseBoolean(definitions.getProperty(name + ".movesToFood", "true"));
+            tracksSickness[id] = Boolean.parseBoolean(definitions.getProperty(name + ".tracksSickness", "true"));
+            plantSickness[id] = Double.parseDouble(definitions.getProperty(name + ".plantSickness", "0"));
+            String colour = definitions.getProperty(name + ".colour");
+            colours[id] = colour == null ? -1 : Integer.parseInt(colour.trim(), 16);
+
+            breedingParameter[id] = Parameter.ofSpecies(name, "BreedingProbability");
+            litterParameter[id] = Parameter.ofSpecies(name, "MaxLitterSize");
+            infectionParameter[id] = Parameter.ofSpecies(name, "InfectionProbability");
+            creationParameter[id] = Parameter.ofSpecies(name, "CreationProbability");
+            breedingProbability[id] = Double.parseDouble(required(definitions, name + ".breedingProbability"));
+            maxLitterSize[id] = Double.parseDouble(required(definitions, name + ".maxLitterSize"));
+            infectionProbability[id] = Double.parseDouble(required(definitions, name + ".infectionProbability"));
+            creationProbability[id] = Double.parseDouble(required(definitions, name + ".creationProbability"));
+        }
+        // Diets may name species defined after the eater, so they come last.
+        for(int id : defined) {
+            String eats = definitions.getProperty(names[id] + ".eats", "");
+            for(String entry : eats.split(",")) {
+                if(entry.isBlank()) {
+                    continue;
+                }
+                String[] food = entry.split(":");
+                if(food.length != 2) {
+                    throw new IllegalStateException("Invalid diet of " + names[id] + ": " + entry.trim());
+                }
+                int column = foodColumn(food[0].trim(), defined);
+                diet[id * DIET_COLUMNS + column] = days(food[1]);
+                hunts[id] |= column != PLANT;
+            }
+        }
+        return defined;
+    }
+
+    private static void defineClass(int id, String name, String className)
+    {
+        try {
+            Class<? extends Animal> type = Class.forName(className).asSubclass(Animal.class);
+            if(classes.containsKey(type)) {
+                throw new IllegalStateException(className + " is the class of two species");
+            }
+            constructors[id] = type.getConstructor(boolean.class, Field.class, Location.class);
+            classes.put(type, id);
+        }
+        catch(ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalStateException("Invalid class for species " + name + ": " + className, e);
+        }
+    }
+
+    private static int foodColumn(String food, int[] defined)
+    {
+        if(food.equals("Plant")) {
+            return PLANT;
+        }
+        for(int id : defined) {
+            if(names[id].equals(food)) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("Unknown food " + food);
+    }
+
+    private static String required(Properties definitions, String key)
+    {
+        String value = definitions.getProperty(key);
+        if(value == null) {
+            throw new IllegalStateException("Missing species definition " + key);
+        }
+        return value.trim();
+    }
+
+    /**
+     * Convert a number of days into steps.
+     */
+    private static int days(String days)
+    {
+        return (int) Math.floor(Field.FULL_DAY_LENGTH * Double.parseDouble(days.trim()));
+    }
+
+    private static byte floor(String floor)
+    {
+        switch(floor.trim()) {
+            case "ground":
+                return GROUND;
+            case "water":
+                return WATER;
+            default:
+                throw new IllegalStateException("Unknown floor type " + floor);
+        }
+    }
+
+    /**
+     * @return Whether the period is the day rather than the night.
+     */
+    private static boolean period(String period)
+    {
+        switch(period.trim()) {
+            case "day":
+                return true;
+            case "night":
+                return false;
+            default:
+                throw new IllegalStateException("Unknown activity period " + period);
+        }
+    }
+}
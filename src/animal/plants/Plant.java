@@ -1,68 +1,46 @@
 package src.animal.plants;
 
-import java.util.List;
-
-import src.Field;
-import src.Location;
-import src.animal.FieldObject;
+import src.Parameter;
+import src.SimulationParameters;
 
 /**
- * A class which inherits from FieldObject
- * and details the properties of a plant
- * field object.
+ * A class which details the properties of plants.
+ * Plants are not actors in the simulation: the vegetation of the
+ * savanna is a layer of the field (see Field.growPlants) which grows
+ * in one pass per step following the rules below.
  */
 
-public class Plant extends FieldObject{
+public final class Plant {
 
-	public Plant(Field field, Location location)
-	{
-		super(field, location);
-		setLocation(location);
-	}
-	
-	@Override
-	protected void setLocation(Location newLocation)
-    {
-        location = newLocation;
-        field.placePlant(this, newLocation);
-    }
+	// The defaults of the plant parameters (see Parameter).
+	// Prob a plant will breed.
+	public static final double BREEDING_PROBABILITY = 0.02;
+	// Prob a plant will breed increased when water is close.
+	public static final double WATER_BONUS = 0.01;
+	// Prob a plant will breed increased when its raining.
+	public static final double RAIN_BONUS = 0.002;
+	// The maximum number of new plants a plant spreads to in one step.
+	public static final int MAX_LITTER_SIZE = 5;
 
-	@Override
-	public void act(List<FieldObject> newPlants, int stepCount) {
-		this.reproduce(newPlants);
+	private Plant()
+	{
 	}
-	
-	@Override
-	public void setDead()
-    {
-        alive = false;
-        if(location != null) {
-            field.clearPlant(location);
-            location = null;
-            field = null;
-        }
-    }
 
 	/**
-	 * The reproduction process of plants
+	 * The probability that a plant breeds in a step.
+	 * @param parameters The parameters of the simulation.
+	 * @param waterClose Whether there is water close to the plant.
+	 * @param raining Whether it is raining.
+	 * @return The breeding probability.
 	 */
-	public void reproduce(List<FieldObject> newPlants) {
-		if(!isAlive()) return;
-		Field field = getField();
-		List<Location> free = field.getFreeFromPlantGroundAdjacentLocations(getLocation());
-		double breedingProbability = 0.02; // Prob a plant will breed.
-		if(field.isWaterClose(this.location)) {
-			breedingProbability += 0.01;    // Prob a plant will breed increased when water is close.
-		}
-		if(field.isRaining()) {
-			breedingProbability += 0.002;  // Prob a plant will breed increased when its raining.
+	public static double breedingProbability(SimulationParameters parameters, boolean waterClose, boolean raining) {
+		double breedingProbability = parameters.get(Parameter.PLANT_BREEDING_PROBABILITY);
+		if(waterClose) {
+			breedingProbability += parameters.get(Parameter.PLANT_WATER_BONUS);
 		}
-		// TODO Don't reproduce plants on water
-		int births = breed(0, breedingProbability, 5);
-		for(int b = 0; b < births && free.size() > 0; b++) {
-			Location loc = free.remove(0);
-			Plant plant = new Plant(field, loc);
-			newPlants.add(plant);
+		if(raining) {
+			breedingProbability += parameters.get(Parameter.PLANT_RAIN_BONUS);
 		}
+		return breedingProbability;
 	}
-}
\ No newline at end of file
+}
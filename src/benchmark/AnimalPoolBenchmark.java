@@ -0,0 +1,92 @@
+package src.benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import src.Simulator;
+
+/**
+ * Compares a long run with and without reusing dead animals for
+ * newborns (see AnimalPool): the number and time of the garbage
+ * collections of each collector, the bytes allocated and the time taken.
+ * Both runs use the same seed and must end with the same animals.
+ *
+ * Each mode runs in turn in the same JVM, after a short warm-up. For the
+ * collector's own account, run one mode at a time with a GC log, e.g.
+ *     java -Xlog:gc -cp ... src.benchmark.AnimalPoolBenchmark 120 40000 on
+ *
+ * Usage: java src.benchmark.AnimalPoolBenchmark [size] [steps] [on|off|both]
+ */
+public class AnimalPoolBenchmark
+{
+    public static void main(String[] args)
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 120;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 40000;
+        String modes = args.length > 2 ? args[2] : "both";
+        System.out.println("world " + size + "x" + size + ", " + steps + " steps");
+
+        run(size, Math.min(steps, 2000), true, false);
+        String first = null;
+        for(boolean pooling : new boolean[] { false, true }) {
+            if(modes.equals("both") || modes.equals(pooling ? "on" : "off")) {
+                String result = run(size, steps, pooling, true);
+                if(first != null && !first.equals(result)) {
+                    System.out.println("  the runs differ!");
+                }
+                first = result;
+            }
+        }
+    }
+
+    /**
+     * Simulate a world and report what the garbage collector did.
+     * @return The population details at the end.
+     */
+    private static String run(int size, int steps, boolean pooling, boolean report)
+    {
+        Simulator world = Simulator.headless(size, size);
+        world.useRandomStreams(40000);
+        world.setAnimalPooling(pooling);
+        world.reset();
+        List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        long[] counts = new long[collectors.size()];
+        long[] millis = new long[collectors.size()];
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] = collectors.get(i).getCollectionCount();
+            millis[i] = collectors.get(i).getCollectionTime();
+        }
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for(int step = 0; step < steps && world.isViable(); step++) {
+            world.simulateOneStep();
+        }
+        long nanos = System.nanoTime() - start;
+        allocated = allocatedBytes() - allocated;
+        String details = world.getPopulationDetails();
+        if(report) {
+            System.out.printf("%npooling %s: %.1f s, %.1f MB allocated, %d animals pooled%n",
+                              pooling ? "on" : "off", nanos / 1e9, allocated / 1e6,
+                              world.getEcosystem().getAnimalPool().size());
+            for(int i = 0; i < counts.length; i++) {
+                System.out.printf("  %-22s %6d collections %7d ms%n", collectors.get(i).getName(),
+                                  collectors.get(i).getCollectionCount() - counts[i],
+                                  collectors.get(i).getCollectionTime() - millis[i]);
+            }
+            System.out.println("  " + details);
+        }
+        return details;
+    }
+
+    /**
+     * @return The bytes allocated by this thread so far, or 0 if the JVM does not tell.
+     */
+    private static long allocatedBytes()
+    {
+        if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,135 @@
+package src.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import src.Field;
+import src.Location;
+import src.fieldType.Ground;
+import src.fieldType.Water;
+
+/**
+ * Compares the legacy and packed field layouts and a field mapped from a
+ * world file. For each grid size and layout it reports the heap taken by the field and the time spent on
+ * floor type, animal and plant lookups, both as a row-by-row scan and
+ * at random cells.
+ *
+ * The 4000x4000 legacy field needs roughly 600MB, so run with
+ * a large heap, e.g. java -Xmx3g src.benchmark.FieldStorageBenchmark
+ * The mapped field keeps its cells in a temporary file, which is
+ * deleted afterwards.
+ */
+public class FieldStorageBenchmark
+{
+    private static final int[] SIZES = { 1000, 4000 };
+    // Number of passes over the grid for each measurement.
+    private static final int PASSES = 5;
+    // Number of random lookups for each measurement.
+    private static final int RANDOM_LOOKUPS = 20_000_000;
+
+    public static void main(String[] args) throws IOException
+    {
+        System.out.println("size       layout   heap(MB)  est(MB)  scan(ns/cell)  random(ns/lookup)");
+        for(int size : SIZES) {
+            for(Field.Layout layout : Field.Layout.values()) {
+                long before = usedHeap();
+                run(size, layout.toString(), new Field(size, size, layout), before);
+            }
+            Path file = Files.createTempFile("field", ".world");
+            try {
+                long before = usedHeap();
+                run(size, "MAPPED", Field.map(file, size, size), before);
+            }
+            finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void run(int size, String layout, Field field, long before)
+    {
+        fill(field);
+        long after = usedHeap();
+
+        // Warm up, then measure.
+        scan(field);
+        long start = System.nanoTime();
+        long found = 0;
+        for(int pass = 0; pass < PASSES; pass++) {
+            found += scan(field);
+        }
+        double scanNs = (System.nanoTime() - start) / ((double) PASSES * size * size);
+
+        randomLookups(field, RANDOM_LOOKUPS / 10);
+        start = System.nanoTime();
+        found += randomLookups(field, RANDOM_LOOKUPS);
+        double randomNs = (System.nanoTime() - start) / (double) RANDOM_LOOKUPS;
+
+        System.out.printf("%-10s %-8s %8.1f %8.1f %14.2f %18.2f   (%d)%n",
+                          size + "x" + size, layout,
+                          (after - before) / 1e6, field.estimatedStorageBytes() / 1e6,
+                          scanNs, randomNs, found);
+    }
+
+    /**
+     * Give the field a terrain and scatter some animals and plants on it.
+     */
+    private static void fill(Field field)
+    {
+        Random rand = new Random(42);
+        Water water = new Water();
+        Ground ground = new Ground();
+        Object animal = new Object();
+        for(int row = 0; row < field.getDepth(); row++) {
+            for(int col = 0; col < field.getWidth(); col++) {
+                boolean isWater = rand.nextDouble() < 0.3;
+                field.setFloorType(isWater ? water : ground, row, col);
+                if(rand.nextDouble() < 0.05) {
+                    field.place(animal, row, col);
+                }
+                if(!isWater && rand.nextDouble() < 0.5) {
+                    field.placePlant(field.getLocation(row, col));
+                }
+            }
+        }
+    }
+
+    private static long scan(Field field)
+    {
+        long found = 0;
+        for(int row = 0; row < field.getDepth(); row++) {
+            for(int col = 0; col < field.getWidth(); col++) {
+                if(field.getFloorTypeAt(row, col) instanceof Water) found++;
+                if(field.getObjectAt(row, col) != null) found++;
+                if(field.hasPlantAt(row, col)) found++;
+            }
+        }
+        return found;
+    }
+
+    private static long randomLookups(Field field, int lookups)
+    {
+        Random rand = new Random(7);
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        long found = 0;
+        for(int i = 0; i < lookups; i++) {
+            int row = rand.nextInt(depth);
+            int col = rand.nextInt(width);
+            if(field.getFloorTypeAt(row, col) instanceof Water) found++;
+            if(field.getObjectAt(row, col) != null) found++;
+        }
+        return found;
+    }
+
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
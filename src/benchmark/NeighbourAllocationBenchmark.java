@@ -0,0 +1,86 @@
+package src.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import src.Field;
+import src.Location;
+import src.Simulator;
+
+/**
+ * Measures how many bytes are allocated by neighbourhood lookups.
+ * It compares the list based Field.adjacentLocations with the buffer
+ * based Field.adjacentCells, and then reports the bytes allocated per
+ * actor per step when a populated world is stepped.
+ */
+public class NeighbourAllocationBenchmark
+{
+    private static final int CALLS = 5_000_000;
+    private static final int STEPS = 2_000;
+
+    public static void main(String[] args)
+    {
+        Simulator world = Simulator.headless(80, 120);
+        world.useRandomStreams(1111);
+        world.reset();
+        Field field = world.getField();
+
+        // Warm up both paths so the JIT has compiled them.
+        listLookups(field, CALLS / 10);
+        cellLookups(field, CALLS / 10);
+
+        long start = allocatedBytes();
+        long sink = listLookups(field, CALLS);
+        double listBytes = (allocatedBytes() - start) / (double) CALLS;
+
+        start = allocatedBytes();
+        sink += cellLookups(field, CALLS);
+        double cellBytes = (allocatedBytes() - start) / (double) CALLS;
+
+        System.out.printf("adjacentLocations: %8.1f bytes/call%n", listBytes);
+        System.out.printf("adjacentCells:     %8.1f bytes/call%n", cellBytes);
+
+        for(int step = 0; step < STEPS / 4; step++) {
+            world.simulateOneStep();
+        }
+        long acts = 0;
+        start = allocatedBytes();
+        for(int step = 0; step < STEPS; step++) {
+            acts += world.getAnimalCount();
+            world.simulateOneStep();
+        }
+        double stepBytes = (allocatedBytes() - start) / (double) STEPS;
+        System.out.printf("world step:        %8.1f bytes/step, %.2f bytes/act (%d)%n",
+                          stepBytes, stepBytes * STEPS / acts, sink);
+    }
+
+    private static long listLookups(Field field, int calls)
+    {
+        long sink = 0;
+        int cells = field.getDepth() * field.getWidth();
+        for(int i = 0; i < calls; i++) {
+            Location location = field.locationOf(i % cells);
+            List<Location> adjacent = field.adjacentLocations(location);
+            sink += adjacent.get(0).getRow();
+        }
+        return sink;
+    }
+
+    private static long cellLookups(Field field, int calls)
+    {
+        long sink = 0;
+        int cells = field.getDepth() * field.getWidth();
+        int[] adjacent = new int[8];
+        for(int i = 0; i < calls; i++) {
+            int count = field.adjacentCells(i % cells, adjacent);
+            sink += adjacent[count - 1];
+        }
+        return sink;
+    }
+
+    private static long allocatedBytes()
+    {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getCurrentThreadAllocatedBytes();
+    }
+}
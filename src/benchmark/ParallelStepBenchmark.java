@@ -0,0 +1,62 @@
+package src.benchmark;
+
+import src.SequentialStepEngine;
+import src.Simulator;
+import src.TiledStepEngine;
+
+/**
+ * Reports how the TiledStepEngine scales with the number of threads.
+ * For each thread count a fresh world is built from the same seed,
+ * warmed up and then stepped, and the steps per second are printed
+ * together with the sequential engine as a baseline.
+ *
+ * Usage: java src.benchmark.ParallelStepBenchmark [size] [steps]
+ */
+public class ParallelStepBenchmark
+{
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32 };
+
+    public static void main(String[] args)
+    {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        System.out.println("world " + size + "x" + size + ", " + steps + " steps, "
+                           + Runtime.getRuntime().availableProcessors() + " cores");
+
+        Simulator world = createWorld(size);
+        world.setStepEngine(new SequentialStepEngine());
+        System.out.printf("sequential     %8.1f steps/s%n", stepsPerSecond(world, steps));
+
+        for(int threads : THREADS) {
+            TiledStepEngine engine = new TiledStepEngine(threads);
+            world = createWorld(size);
+            world.setStepEngine(engine);
+            System.out.printf("%2d thread(s)   %8.1f steps/s%n", threads, stepsPerSecond(world, steps));
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Create a headless world that only depends on its size, so every
+     * engine starts from the same state.
+     */
+    private static Simulator createWorld(int size)
+    {
+        Simulator world = Simulator.headless(size, size);
+        world.useRandomStreams(1111);
+        world.reset();
+        return world;
+    }
+
+    private static double stepsPerSecond(Simulator world, int steps)
+    {
+        for(int i = 0; i < steps / 4; i++) {
+            world.simulateOneStep();
+        }
+        long start = System.nanoTime();
+        for(int i = 0; i < steps; i++) {
+            world.simulateOneStep();
+        }
+        return steps / ((System.nanoTime() - start) / 1e9);
+    }
+}